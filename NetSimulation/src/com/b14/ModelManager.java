@@ -77,13 +77,18 @@ public class ModelManager {
 
         while (runSimulation) {
 
-            if (simulatePhysics) {
-                physicsLock.lock();
-                try {
+            physicsLock.lock();
+            try {
+                // The view does not lay out the nodes itself, as that would walk the network without the lock
+                if (!panel.isHeadless()) {
+                    model.ensureLaidOut();
+                }
+
+                if (simulatePhysics) {
                     model.physicsUpdate();
-                } finally {
-                    physicsLock.unlock();
                 }
+            } finally {
+                physicsLock.unlock();
             }
 
             //update panels
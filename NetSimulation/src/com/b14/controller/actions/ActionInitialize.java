@@ -2,6 +2,7 @@ package com.b14.controller.actions;
 
 import com.b14.ModelManager;
 import com.b14.model.GraphModel;
+import com.b14.model.RandomStreams;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
@@ -43,11 +44,29 @@ public class ActionInitialize extends AbstractAction {
 
         } while (numNodes == -1);
 
+        Long seed;
+
+        do {
+            try {
+                input = JOptionPane.showInputDialog("Seed (the current run has seed " + model.getSeed() +
+                        ", the same seed and settings give the same run)?", RandomStreams.createSeed());
+
+                if (input == null) {
+                    return;
+                }
+
+                seed = Long.parseLong(input.strip());
+            } catch (NumberFormatException e) {
+                seed = null;
+            }
+
+        } while (seed == null);
+
         ReentrantLock physicsLock = manager.getPhysicsLock();
 
         try {
             physicsLock.lock();
-            model.startRandom(numNodes);
+            model.startRandom(numNodes, seed);
         } finally {
             physicsLock.unlock();
         }
@@ -0,0 +1,52 @@
+package com.b14.controller.actions;
+
+import com.b14.ModelManager;
+import com.b14.model.GraphModel;
+import com.b14.model.networkgenerators.NetworkGenerator;
+import com.b14.view.GraphFrame;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sets the generator that connects the agents, which is used from the next time the model is reset
+ */
+
+public class ActionSetNetworkGenerator extends AbstractAction {
+
+    private final ModelManager manager;
+    private final GraphModel model;
+    private final GraphFrame frame;
+
+    public ActionSetNetworkGenerator(ModelManager manager, GraphModel model, GraphFrame frame) {
+        super("Set network generator");
+        this.manager = manager;
+        this.model = model;
+        this.frame = frame;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent event) {
+
+        Object[] options = NetworkGenerator.Type.values();
+
+        NetworkGenerator.Type type = (NetworkGenerator.Type) JOptionPane.showInputDialog(frame,
+                "Select a network generator, used when the model is reset (currently: "
+                        + model.getNetworkGenerator().getType() + ")", "",
+                JOptionPane.PLAIN_MESSAGE, null, options, model.getNetworkGenerator().getType());
+
+        if (type == null) {
+            return;
+        }
+
+        ReentrantLock physicsLock = manager.getPhysicsLock();
+
+        try {
+            physicsLock.lock();
+            model.setNetworkGenerator(NetworkGenerator.create(type));
+        } finally {
+            physicsLock.unlock();
+        }
+    }
+}
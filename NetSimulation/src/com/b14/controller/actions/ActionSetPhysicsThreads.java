@@ -0,0 +1,57 @@
+package com.b14.controller.actions;
+
+import com.b14.ModelManager;
+import com.b14.model.GraphModel;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sets the number of threads a physics step is spread over
+ */
+
+public class ActionSetPhysicsThreads extends AbstractAction {
+
+    private final ModelManager manager;
+    private final GraphModel model;
+
+    public ActionSetPhysicsThreads(ModelManager manager, GraphModel model) {
+        super("Set physics threads");
+        this.manager = manager;
+        this.model = model;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent event) {
+
+        int threads;
+        String input;
+
+        do {
+            try {
+                input = JOptionPane.showInputDialog("Number of physics threads " +
+                        "(Currently: " + model.getPhysicsThreads() + ", needs to be >= 1)",
+                        Runtime.getRuntime().availableProcessors());
+
+                if (input == null) {
+                    return;
+                }
+
+                threads = Integer.parseInt(input);
+            } catch (NumberFormatException e) {
+                threads = -1;
+            }
+
+        } while (threads < 1);
+
+        ReentrantLock physicsLock = manager.getPhysicsLock();
+
+        try {
+            physicsLock.lock();
+            model.setPhysicsThreads(threads);
+        } finally {
+            physicsLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.b14.controller.actions;
+
+import com.b14.ModelManager;
+import com.b14.model.GraphModel;
+import com.b14.model.physicsengines.BarnesHutPushEngine;
+import com.b14.model.physicsengines.GridPushEngine;
+import com.b14.model.physicsengines.PushForceEngine;
+import com.b14.view.GraphFrame;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sets the engine that applies the push forces between nodes, and its accuracy or kernel where it has one
+ */
+
+public class ActionSetPushForceEngine extends AbstractAction {
+
+    private final ModelManager manager;
+    private final GraphModel model;
+    private final GraphFrame frame;
+
+    public ActionSetPushForceEngine(ModelManager manager, GraphModel model, GraphFrame frame) {
+        super("Set push force engine");
+        this.manager = manager;
+        this.model = model;
+        this.frame = frame;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent event) {
+
+        Object[] options = PushForceEngine.Type.values();
+
+        PushForceEngine.Type type = (PushForceEngine.Type) JOptionPane.showInputDialog(frame,
+                "Select a push force engine (currently: " + model.getPushForceEngine().getType() + ")", "",
+                JOptionPane.PLAIN_MESSAGE, null, options, model.getPushForceEngine().getType());
+
+        if (type == null) {
+            return;
+        }
+
+        PushForceEngine engine = PushForceEngine.create(type);
+
+        if (type == PushForceEngine.Type.BARNES_HUT) {
+            double theta;
+            String input;
+
+            do {
+                try {
+                    input = JOptionPane.showInputDialog("Accuracy theta (>= 0, 0 is exact, larger is faster):",
+                            BarnesHutPushEngine.DEFAULT_THETA);
+
+                    if (input == null) {
+                        return;
+                    }
+
+                    theta = Double.parseDouble(input);
+                } catch (NumberFormatException e) {
+                    theta = -1;
+                }
+
+            } while (theta < 0);
+
+            engine = new BarnesHutPushEngine(theta);
+        } else if (type == PushForceEngine.Type.GRID) {
+            GridPushEngine.Kernel kernel = (GridPushEngine.Kernel) JOptionPane.showInputDialog(frame,
+                    "Select a kernel (EXACT matches brute force, VECTORIZED uses SIMD instructions)", "",
+                    JOptionPane.PLAIN_MESSAGE, null, GridPushEngine.Kernel.values(), GridPushEngine.DEFAULT_KERNEL);
+
+            if (kernel == null) {
+                return;
+            }
+
+            engine = new GridPushEngine(kernel);
+        }
+
+        ReentrantLock physicsLock = manager.getPhysicsLock();
+
+        try {
+            physicsLock.lock();
+            model.setPushForceEngine(engine);
+        } finally {
+            physicsLock.unlock();
+        }
+    }
+}
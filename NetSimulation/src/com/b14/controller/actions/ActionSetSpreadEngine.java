@@ -0,0 +1,73 @@
+package com.b14.controller.actions;
+
+import com.b14.ModelManager;
+import com.b14.model.GraphModel;
+import com.b14.model.spreadengines.SpreadEngine;
+import com.b14.view.GraphFrame;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sets the engine that performs the spread steps, and the number of threads it may use
+ */
+
+public class ActionSetSpreadEngine extends AbstractAction {
+
+    private final ModelManager manager;
+    private final GraphModel model;
+    private final GraphFrame frame;
+
+    public ActionSetSpreadEngine(ModelManager manager, GraphModel model, GraphFrame frame) {
+        super("Set spread engine");
+        this.manager = manager;
+        this.model = model;
+        this.frame = frame;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent event) {
+
+        Object[] options = SpreadEngine.Type.values();
+
+        SpreadEngine.Type type = (SpreadEngine.Type) JOptionPane.showInputDialog(frame,
+                "Select a spread engine (currently: " + model.getSpreadEngine().getType() + ")", "",
+                JOptionPane.PLAIN_MESSAGE, null, options, model.getSpreadEngine().getType());
+
+        if (type == null) {
+            return;
+        }
+
+        int threads = 1;
+
+        if (type != SpreadEngine.Type.SEQUENTIAL) {
+            String input;
+
+            do {
+                try {
+                    input = JOptionPane.showInputDialog("Number of worker threads (>= 1):",
+                            Runtime.getRuntime().availableProcessors());
+
+                    if (input == null) {
+                        return;
+                    }
+
+                    threads = Integer.parseInt(input);
+                } catch (NumberFormatException e) {
+                    threads = -1;
+                }
+
+            } while (threads < 1);
+        }
+
+        ReentrantLock physicsLock = manager.getPhysicsLock();
+
+        try {
+            physicsLock.lock();
+            model.setSpreadEngine(SpreadEngine.create(type, model.getWorkers(), threads));
+        } finally {
+            physicsLock.unlock();
+        }
+    }
+}
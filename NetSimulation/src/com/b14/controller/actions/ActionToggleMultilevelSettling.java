@@ -0,0 +1,37 @@
+package com.b14.controller.actions;
+
+import com.b14.model.DataLogger;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+/**
+ * Toggles whether the layout settles with coarsened versions of the network first before a capture is taken
+ */
+
+public class ActionToggleMultilevelSettling extends AbstractAction implements PropertyChangeListener {
+
+    private final DataLogger dl;
+
+    public ActionToggleMultilevelSettling(DataLogger dl) {
+        super("toggle multilevel settling (capture)");
+        this.dl = dl;
+        setState();
+    }
+
+    private void setState() {
+        setEnabled(dl.isImgsGenerated());
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent event) {
+        dl.getIc().setMultilevelSettling(!dl.getIc().isMultilevelSettling());
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        setState();
+    }
+}
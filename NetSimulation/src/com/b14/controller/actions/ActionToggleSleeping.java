@@ -0,0 +1,36 @@
+package com.b14.controller.actions;
+
+import com.b14.ModelManager;
+import com.b14.model.GraphModel;
+
+import javax.swing.*;
+import java.awt.event.ActionEvent;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Toggles whether nodes that have been resting for a while are skipped by the physics
+ */
+
+public class ActionToggleSleeping extends AbstractAction {
+
+    private final GraphModel model;
+    private final ModelManager manager;
+
+    public ActionToggleSleeping(ModelManager manager, GraphModel model) {
+        super("Toggle node sleeping");
+        this.manager = manager;
+        this.model = model;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent event) {
+        ReentrantLock physicsLock = manager.getPhysicsLock();
+
+        try {
+            physicsLock.lock();
+            model.setSleeping(!model.isSleeping());
+        } finally {
+            physicsLock.unlock();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.b14.controller.actions;
 
 import com.b14.model.GraphModel;
-import com.b14.model.Node;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
@@ -45,6 +44,6 @@ public class ActionUpdateDissonanceWeight extends AbstractAction {
 
         } while (dissonanceRatioWeight == -2);
 
-        Node.setDissonanceRatioWeight(dissonanceRatioWeight);
+        model.setConfig(model.getConfig().withDissonanceRatioWeight(dissonanceRatioWeight));
     }
 }
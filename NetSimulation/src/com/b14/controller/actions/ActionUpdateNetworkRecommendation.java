@@ -1,7 +1,7 @@
 package com.b14.controller.actions;
 
 import com.b14.model.GraphModel;
-import com.b14.model.recommendationstrategies.RecommendationStrategy;
+import com.b14.model.recommendationstrategies.RecommendationStrategyRegistry;
 import com.b14.view.GraphFrame;
 
 import javax.swing.*;
@@ -30,11 +30,11 @@ public class ActionUpdateNetworkRecommendation extends AbstractAction {
 
         String input;
 
-        Object[] options = RecommendationStrategy.Strategy.values();
+        Object[] options = RecommendationStrategyRegistry.getNames().toArray();
 
-        RecommendationStrategy.Strategy rs = (RecommendationStrategy.Strategy) JOptionPane.showInputDialog(frame,
+        String rs = (String) JOptionPane.showInputDialog(frame,
                 "Select a recommendation strategy", "", JOptionPane.PLAIN_MESSAGE, null,
-                options, RecommendationStrategy.Strategy.values()[0]);
+                options, model.getRecommendationStrategy().getName());
 
         if (rs == null) {
             return;
@@ -62,7 +62,7 @@ public class ActionUpdateNetworkRecommendation extends AbstractAction {
 
         } while (size == -1);
 
-        model.setRecommendationStrategy(rs);
+        model.setRecommendationStrategy(RecommendationStrategyRegistry.create(rs));
         model.setRecommendationSize(size);
     }
 }
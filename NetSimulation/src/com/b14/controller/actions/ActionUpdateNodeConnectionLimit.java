@@ -2,7 +2,6 @@ package com.b14.controller.actions;
 
 import com.b14.ModelManager;
 import com.b14.model.GraphModel;
-import com.b14.model.Node;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
@@ -50,13 +49,11 @@ public class ActionUpdateNodeConnectionLimit extends AbstractAction {
 
         } while (connectionLimit == 0);
 
-        Node.setConnectionLimit(connectionLimit);
-
         ReentrantLock physicsLock = manager.getPhysicsLock();
 
         try {
             physicsLock.lock();
-            model.setConnectionLimitOnNodes(connectionLimit);
+            model.setConfig(model.getConfig().withConnectionLimit(connectionLimit));
         } finally {
             physicsLock.unlock();
         }
@@ -1,7 +1,6 @@
 package com.b14.controller.actions;
 
 import com.b14.model.GraphModel;
-import com.b14.model.Node;
 
 import javax.swing.*;
 import java.awt.event.ActionEvent;
@@ -45,7 +44,6 @@ public class ActionUpdateOpennessWeight extends AbstractAction {
 
         } while (opennessWeight == -2);
 
-        Node.setOpennessWeight(opennessWeight);
-        model.setReweightedOpenness();
+        model.setConfig(model.getConfig().withOpennessWeight(opennessWeight));
     }
 }
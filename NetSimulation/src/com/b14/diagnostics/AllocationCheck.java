@@ -0,0 +1,124 @@
+package com.b14.diagnostics;
+
+import com.b14.model.DataLogger;
+import com.b14.model.GraphModel;
+import com.b14.model.recommendationstrategies.RecommendationStrategyRegistry;
+import com.b14.model.spreadengines.SpreadEngine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Checks that spread steps do not allocate memory for every agent once the model has reached a steady state. A
+ * model of 100k agents first runs a number of epochs, in which scratch buffers grow to their final size and the JIT
+ * compiler settles. The bytes allocated by all threads of the program, including the workers of the shared
+ * executor, are then counted over the next epochs.
+ * <p>
+ * What is left is bookkeeping that costs the same for any number of agents: the events the model fires after every
+ * epoch, and the tasks and futures with which a pooled engine hands out a phase to its workers. The check fails if
+ * an epoch allocates more than MAX_BYTES_PER_EPOCH, which at 100k agents is less than a byte per agent, so any
+ * allocation that grows with the number of agents is caught. Output to the data logger is off, as writing the data
+ * of an epoch creates text for every agent.
+ * <p>
+ * Recommendations are made by the NEUTRALIZE strategy by default, which draws from belief ranges like POLARIZE does.
+ * POLARIZE itself works as well, but while most agents are at their connection limit its draws from a range mostly
+ * fail, and it scans the whole range for every agent, which at 100k agents takes minutes per epoch.
+ * <p>
+ * Run with: java -Xmx3g -cp graph.jar com.b14.diagnostics.AllocationCheck [agents [strategy]]
+ * <p>
+ * The first epochs of the parallel engine journal millions of network changes at 100k agents, hence the larger heap.
+ */
+
+public class AllocationCheck {
+
+    private static final int DEFAULT_AGENTS = 100000;
+    private static final long SEED = 0;
+    private static final String DEFAULT_STRATEGY = "NEUTRALIZE";
+    private static final int WARMUP_EPOCHS = 20;
+    private static final int MEASURED_EPOCHS = 10;
+    private static final long MAX_BYTES_PER_EPOCH = 16 * 1024;
+
+    public static void main(String[] args) {
+        int numAgents = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_AGENTS;
+        String strategy = (args.length > 1) ? args[1] : DEFAULT_STRATEGY;
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+        com.sun.management.ThreadMXBean threadBean = getThreadBean();
+        if (threadBean == null) {
+            System.out.println("This JVM does not count the bytes allocated by threads");
+            System.exit(1);
+            return;
+        }
+
+        int failures = 0;
+        for (SpreadEngine.Type type : new SpreadEngine.Type[]{SpreadEngine.Type.SEQUENTIAL,
+                SpreadEngine.Type.PARALLEL}) {
+            long bytesPerEpoch = measure(threadBean, type, threads, numAgents, strategy);
+            boolean passed = bytesPerEpoch <= MAX_BYTES_PER_EPOCH;
+
+            System.out.printf("%-10s %s, %d agents: %d bytes per epoch, %.4f per agent (at most %d per epoch) %s%n",
+                    type, strategy, numAgents, bytesPerEpoch, (double) bytesPerEpoch / numAgents, MAX_BYTES_PER_EPOCH,
+                    passed ? "ok" : "FAILED");
+            if (!passed) {
+                failures++;
+            }
+        }
+
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return the average number of bytes allocated by all threads in a steady-state epoch
+     */
+    private static long measure(com.sun.management.ThreadMXBean threadBean, SpreadEngine.Type type, int threads,
+                                int numAgents, String strategy) {
+        DataLogger dataLogger = new DataLogger();
+        GraphModel model = new GraphModel(dataLogger);
+        dataLogger.setModel(model);
+
+        model.setSpreadEngine(SpreadEngine.create(type, threads));
+        model.setRecommendationStrategy(RecommendationStrategyRegistry.create(strategy));
+        model.startRandom(numAgents, SEED);
+
+        for (int epoch = 0; epoch < WARMUP_EPOCHS; epoch++) {
+            model.simulateSpreadStep();
+        }
+
+        // The workers are started by now, and keep running between the two counts
+        long[] threadIds = threadBean.getAllThreadIds();
+        long before = sum(threadBean.getThreadAllocatedBytes(threadIds));
+        for (int epoch = 0; epoch < MEASURED_EPOCHS; epoch++) {
+            model.simulateSpreadStep();
+        }
+        long after = sum(threadBean.getThreadAllocatedBytes(threadIds));
+
+        return (after - before) / MEASURED_EPOCHS;
+    }
+
+    /**
+     * @return the sum of the counts of the threads that are still alive
+     */
+    private static long sum(long[] allocatedBytes) {
+        long total = 0;
+        for (long bytes : allocatedBytes) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationBean;
+    }
+}
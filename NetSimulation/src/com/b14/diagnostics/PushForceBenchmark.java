@@ -0,0 +1,171 @@
+package com.b14.diagnostics;
+
+import com.b14.model.DataLogger;
+import com.b14.model.GraphModel;
+import com.b14.model.Node;
+import com.b14.model.PhysicsContext;
+import com.b14.model.PhysicsStore;
+import com.b14.model.SplitMixRandom;
+import com.b14.model.physicsengines.GridPushEngine;
+import com.b14.model.physicsengines.PushForceEngine;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the kernels of the GridPushEngine on settled layouts: the push forces on their own, and the full physics
+ * step, which also applies the spring forces and gravity and moves the nodes. The rest of the step, which does not
+ * depend on the kernel, is also measured on its own, with an engine that does not push. Everything runs on a single
+ * thread. The measurements take turns over several rounds and the best round of each counts, so warming up and noise
+ * from other programs do not favour any of them.
+ * <p>
+ * The VECTORIZED kernel relies on the JIT compiler to turn its loops into SIMD instructions, so the vector settings of
+ * the JVM are printed along with the results. On a CPU with AVX-512, adding -XX:UseAVX=2 limits the JIT compiler to
+ * the AVX2 instructions of an ordinary x86 CPU.
+ * <p>
+ * Run with: java -cp graph.jar com.b14.diagnostics.PushForceBenchmark [nodes ...]
+ */
+
+public class PushForceBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1000, 10000, 50000};
+    private static final long SEED = 0;
+    private static final int SETTLE_STEPS = 200;
+    private static final int ROUNDS = 5;
+    private static final int NODE_STEPS_PER_ROUND = 200000; // the number of steps in a round shrinks with the nodes
+    private static final double RANGE = 90.0;               // the push range and strength of the model
+    private static final double STRENGTH = 0.1;
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        printVectorSettings();
+        System.out.println("nodes    push exact  push vectorized  speedup    step exact  step vectorized  speedup" +
+                "  rest of step");
+
+        for (int numNodes : sizes) {
+            benchmark(numNodes);
+        }
+    }
+
+    private static void benchmark(int numNodes) {
+        GraphModel model = createSettledModel(numNodes);
+        // Without pushes the layout contracts, which would slow down the pushes measured after it
+        GraphModel unpushedModel = createSettledModel(numNodes);
+        unpushedModel.setPushForceEngine(new NoPushEngine());
+
+        PhysicsStore physics = model.getAgents().getPhysics();
+        PhysicsContext context = new PhysicsContext(new SplitMixRandom(SEED));
+        GridPushEngine[] engines = {new GridPushEngine(GridPushEngine.Kernel.EXACT),
+                new GridPushEngine(GridPushEngine.Kernel.VECTORIZED)};
+        int steps = Math.max(1, NODE_STEPS_PER_ROUND / numNodes);
+
+        double[] bestPush = {Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] bestStep = {Double.MAX_VALUE, Double.MAX_VALUE};
+        double bestRest = Double.MAX_VALUE;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int k = 0; k < engines.length; k++) {
+                bestPush[k] = Math.min(bestPush[k], timePushForces(engines[k], physics, numNodes, context, steps));
+
+                // The pushes are only added to the accelerations, which the physics steps should start without
+                for (Node n : model.getNodes()) {
+                    n.setAcceleration(0, 0);
+                }
+
+                model.setPushForceEngine(engines[k]);
+                bestStep[k] = Math.min(bestStep[k], timePhysicsSteps(model, steps));
+            }
+
+            bestRest = Math.min(bestRest, timePhysicsSteps(unpushedModel, steps));
+        }
+
+        System.out.printf("%-8d %10.3f ms %13.3f ms %7.2fx %10.3f ms %13.3f ms %7.2fx %10.3f ms%n", numNodes,
+                bestPush[0], bestPush[1], bestPush[0] / bestPush[1],
+                bestStep[0], bestStep[1], bestStep[0] / bestStep[1], bestRest);
+    }
+
+    /**
+     * @return a model of the given size, laid out and settled, whose physics runs on a single thread without sleeping
+     */
+    private static GraphModel createSettledModel(int numNodes) {
+        DataLogger dataLogger = new DataLogger();
+        GraphModel model = new GraphModel(dataLogger);
+        dataLogger.setModel(model);
+
+        model.startRandom(numNodes, SEED);
+        model.setPhysicsThreads(1);
+        model.setSleeping(false);
+        model.settle(0, SETTLE_STEPS, true);
+        return model;
+    }
+
+    /**
+     * Timed loops are kept in methods of their own, so the JIT compiler treats them like any other caller
+     *
+     * @return the average time of a step, in milliseconds
+     */
+    private static double timePushForces(GridPushEngine engine, PhysicsStore physics, int numNodes,
+                                         PhysicsContext context, int steps) {
+        long start = System.nanoTime();
+        for (int step = 0; step < steps; step++) {
+            engine.prepare(physics, numNodes, RANGE);
+            engine.applyPushForces(physics, 0, numNodes, RANGE, STRENGTH, context);
+        }
+        return (System.nanoTime() - start) / 1e6 / steps;
+    }
+
+    /**
+     * @return the average time of a physics step of the model, in milliseconds
+     */
+    private static double timePhysicsSteps(GraphModel model, int steps) {
+        long start = System.nanoTime();
+        for (int step = 0; step < steps; step++) {
+            model.physicsUpdate();
+        }
+        return (System.nanoTime() - start) / 1e6 / steps;
+    }
+
+    /**
+     * An engine that applies no push forces, used to time the rest of a physics step
+     */
+    private static class NoPushEngine implements PushForceEngine {
+
+        @Override
+        public void prepare(PhysicsStore physics, int numNodes, double range) {
+        }
+
+        @Override
+        public void applyPushForces(PhysicsStore physics, int from, int to, double range, double strength,
+                                    PhysicsContext context) {
+        }
+
+        @Override
+        public Type getType() {
+            return null;
+        }
+    }
+
+    private static void printVectorSettings() {
+        StringBuilder settings = new StringBuilder(System.getProperty("java.vm.name") + " " +
+                System.getProperty("java.vm.version") + ", " + System.getProperty("os.arch"));
+
+        try {
+            HotSpotDiagnosticMXBean vm = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            for (String option : new String[]{"UseSuperWord", "MaxVectorSize", "UseAVX"}) {
+                settings.append(", ").append(option).append("=").append(vm.getVMOption(option).getValue());
+            }
+        } catch (RuntimeException | LinkageError e) {
+            settings.append(", vector settings unknown");
+        }
+
+        System.out.println(settings);
+        System.out.println("Default kernel: " + GridPushEngine.DEFAULT_KERNEL);
+    }
+}
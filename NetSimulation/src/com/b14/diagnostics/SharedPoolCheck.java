@@ -0,0 +1,111 @@
+package com.b14.diagnostics;
+
+import com.b14.model.DataLogger;
+import com.b14.model.GraphModel;
+import com.b14.model.Node;
+import com.b14.model.WorkerThreads;
+import com.b14.model.spreadengines.SpreadEngine;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks that models can run as tasks on the executor shared by all models, while their spread engines and physics
+ * pools hand out their own chunks to that same executor. There are more models than processors, so every thread of
+ * the executor is taken by a model, and no thread is free to run the chunks. The models alternate between the
+ * PARALLEL and COLORED engines, with more workers than there are processors, and also run physics steps on as many
+ * workers. The check fails if the models do not finish in time, or if a model ends in another state than the same
+ * model run on the main thread.
+ * <p>
+ * Run with: java -cp graph.jar com.b14.diagnostics.SharedPoolCheck [models]
+ * <p>
+ * Adding -XX:ActiveProcessorCount=4 runs the check with a shared executor of four threads.
+ */
+
+public class SharedPoolCheck {
+
+    private static final int NUM_NODES = 3000;
+    private static final int EPOCHS = 10;
+    private static final int PHYSICS_STEPS = 5;
+    private static final long TIMEOUT_SECONDS = 300;
+
+    public static void main(String[] args) throws InterruptedException {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int numModels = (args.length > 0) ? Integer.parseInt(args[0]) : 2 * processors + 2;
+        int threads = processors + 2;
+        ExecutorService shared = WorkerThreads.getShared();
+
+        ArrayList<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < numModels; i++) {
+            long seed = i;
+            SpreadEngine.Type type = getType(i);
+            results.add(shared.submit(() -> run(type, threads, seed)));
+        }
+
+        int failures = 0;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        for (int i = 0; i < numModels; i++) {
+            long state;
+            try {
+                state = results.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                System.out.println("Models did not finish within " + TIMEOUT_SECONDS + " s on " + processors +
+                        " threads: deadlock");
+                System.exit(1);
+                return;
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+
+            // Run on the main thread, the model hands out its chunks to free threads of the executor
+            if (state != run(getType(i), threads, i)) {
+                System.out.println("Model " + i + " (" + getType(i) + ") differs from the same model run on the " +
+                        "main thread");
+                failures++;
+            }
+        }
+
+        System.out.println(numModels + " models with " + threads + " workers each finished on " + processors +
+                " threads, " + (numModels - failures) + " of them as on the main thread");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static SpreadEngine.Type getType(int model) {
+        return (model % 2 == 0) ? SpreadEngine.Type.PARALLEL : SpreadEngine.Type.COLORED;
+    }
+
+    /**
+     * @return a hash of the beliefs, connections and positions of the nodes after the run
+     */
+    private static long run(SpreadEngine.Type type, int threads, long seed) {
+        DataLogger dataLogger = new DataLogger();
+        GraphModel model = new GraphModel(dataLogger);
+        dataLogger.setModel(model);
+
+        model.setSpreadEngine(SpreadEngine.create(type, threads));
+        model.setPhysicsThreads(threads);
+        model.startRandom(NUM_NODES, seed);
+
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            model.simulateSpreadStep();
+        }
+        for (int step = 0; step < PHYSICS_STEPS; step++) {
+            model.physicsUpdate();
+        }
+
+        long hash = 0;
+        for (Node n : model.getNodes()) {
+            hash = 31 * hash + Float.floatToIntBits(n.getBelief());
+            hash = 31 * hash + n.getConnectionCount();
+            hash = 31 * hash + Double.doubleToLongBits(n.getX());
+            hash = 31 * hash + Double.doubleToLongBits(n.getY());
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,86 @@
+package com.b14.diagnostics;
+
+import com.b14.model.Adjacency;
+import com.b14.model.Physics2DObject;
+import com.b14.model.PhysicsStore;
+
+import java.util.Random;
+
+/**
+ * Checks that a sleeping node is woken by a moving node within its push range, which it is not connected to. Many
+ * moving nodes are spread far apart, so most cells of the spatial hash hold one, and a single sleeping node is put
+ * close to one of them. Every trial uses a different layout; the check fails if the sleeping node is ever left
+ * asleep.
+ * <p>
+ * Run with: java -cp graph.jar com.b14.diagnostics.SleepCheck [trials]
+ */
+
+public class SleepCheck {
+
+    private static final double RANGE = 90.0;       // the push range of the model
+    private static final double DISTANCE = 20.0;    // between the sleeping node and its moving neighbour
+    private static final int NUM_MOVING = 2000;
+
+    public static void main(String[] args) {
+        int trials = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int failures = 0;
+
+        for (int trial = 0; trial < trials; trial++) {
+            if (!wakesSleeper(new Random(trial))) {
+                failures++;
+            }
+        }
+
+        System.out.println("Sleeping node woken in " + (trials - failures) + " of " + trials + " trials");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return whether or not the sleeping node was woken after a step in which the node next to it moved
+     */
+    private static boolean wakesSleeper(Random random) {
+        int numNodes = NUM_MOVING + 1;
+        int sleeper = NUM_MOVING;
+
+        PhysicsStore physics = new PhysicsStore();
+        physics.ensureNodes(numNodes);
+        physics.ensureLaidOut();
+        Adjacency network = new Adjacency();
+        network.ensureRows(numNodes);
+
+        // The moving nodes are at least four push ranges apart, on a randomly shifted grid
+        int columns = (int) Math.ceil(Math.sqrt(NUM_MOVING));
+        double spacing = 4 * RANGE;
+        double shiftX = random.nextDouble() * spacing;
+        double shiftY = random.nextDouble() * spacing;
+        for (int i = 0; i < NUM_MOVING; i++) {
+            new Physics2DObject(physics, i).setPosition(shiftX + (i % columns) * spacing,
+                    shiftY + (i / columns) * spacing);
+        }
+
+        int target = random.nextInt(NUM_MOVING);
+        double angle = random.nextDouble() * 2 * Math.PI;
+        Physics2DObject sleeping = new Physics2DObject(physics, sleeper);
+        Physics2DObject moving = new Physics2DObject(physics, target);
+        sleeping.setPosition(moving.getX() + DISTANCE * Math.cos(angle), moving.getY() + DISTANCE * Math.sin(angle));
+
+        // Rest until every node sleeps, then wake and push all but the one next to the sleeping node
+        for (int step = 0; step <= 2 * PhysicsStore.SLEEP_STEPS && !physics.isAsleep(sleeper); step++) {
+            physics.integrate(0, numNodes, true);
+        }
+        if (!physics.isAsleep(sleeper)) {
+            throw new IllegalStateException("The node did not fall asleep");
+        }
+
+        for (int i = 0; i < NUM_MOVING; i++) {
+            physics.wake(i);
+            physics.addAcceleration(i, 0, 2 * PhysicsStore.WAKE_SPEED);
+        }
+        physics.integrate(0, numNodes, true);
+        physics.wakeAroundMovingNodes(network, numNodes, RANGE);
+
+        return !physics.isAsleep(sleeper);
+    }
+}
@@ -0,0 +1,372 @@
+package com.b14.model;
+
+import java.util.Arrays;
+
+/**
+ * Stores the connections between agents as agent ids, in a compressed sparse row layout.
+ * Every agent owns a row of slots within one shared array. A row is reserved with some slack (normally the connection
+ * limit of the agent), so adding a connection does not need to move anything. Removed connections are marked with
+ * a tombstone and are compacted away later, which keeps removals cheap and preserves the order of the remaining
+ * neighbours. Reads skip the tombstones and never compact, so reading the structure never modifies it.
+ * <p>
+ * Short rows are scanned to find a neighbour. Rows with more than INDEXED_DEGREE neighbours also get a NeighbourSet,
+ * so checking whether two agents are connected takes constant time even for hubs. A set is sized for the capacity
+ * of its row, and is kept when the row shrinks again, so rows whose degree moves around the threshold do not
+ * allocate. The sets are updated on writes only, so reading stays safe from multiple threads.
+ */
+
+public class Adjacency {
+
+    private static final int TOMBSTONE = -1;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MIN_ROW_CAPACITY = 4;
+    private static final int INDEXED_DEGREE = 16; // a row of this many ids fits in a single cache line
+
+    private int[] offset = new int[INITIAL_CAPACITY];   // first slot of each row
+    private int[] capacity = new int[INITIAL_CAPACITY]; // number of slots reserved for each row
+    private int[] length = new int[INITIAL_CAPACITY];   // number of slots in use, including tombstones
+    private int[] degree = new int[INITIAL_CAPACITY];   // number of actual neighbours
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private NeighbourSet[] index = new NeighbourSet[INITIAL_CAPACITY]; // null for rows that are scanned
+
+    private int rows;
+    private int usedSlots;      // slots handed out to rows, from the start of the slot array
+    private int abandonedSlots; // slots of rows that have been moved elsewhere
+    private int tombstones;
+    private int modificationCount; // increased on every change to the connections
+
+    /**
+     * Removes all connections and rows. The arrays are kept to be reused.
+     */
+    public void clear() {
+        Arrays.fill(index, 0, rows, null);
+        ++modificationCount;
+        rows = 0;
+        usedSlots = 0;
+        abandonedSlots = 0;
+        tombstones = 0;
+    }
+
+    /**
+     * Makes sure there is a row for every agent id below the given number.
+     *
+     * @param numRows the number of rows that should exist
+     */
+    public void ensureRows(int numRows) {
+        if (numRows > offset.length) {
+            int newLength = Math.max(offset.length * 2, numRows);
+            offset = Arrays.copyOf(offset, newLength);
+            capacity = Arrays.copyOf(capacity, newLength);
+            length = Arrays.copyOf(length, newLength);
+            degree = Arrays.copyOf(degree, newLength);
+            index = Arrays.copyOf(index, newLength);
+        }
+
+        for (int i = rows; i < numRows; i++) {
+            offset[i] = usedSlots;
+            capacity[i] = 0;
+            length[i] = 0;
+            degree[i] = 0;
+            index[i] = null;
+        }
+        rows = Math.max(rows, numRows);
+    }
+
+    /**
+     * Makes sure the row of an agent has room for at least the given number of neighbours.
+     *
+     * @param agent         the agent whose row is reserved
+     * @param numNeighbours the number of neighbours that should fit without moving the row
+     */
+    public void reserve(int agent, int numNeighbours) {
+        ensureRows(agent + 1);
+
+        if (capacity[agent] < numNeighbours) {
+            moveRow(agent, numNeighbours);
+        }
+    }
+
+    /**
+     * Adds a directed entry from one agent to another. Does not check for duplicates, which are not allowed.
+     *
+     * @param agent     the agent in whose row the neighbour is stored
+     * @param neighbour the neighbour to store
+     */
+    public void add(int agent, int neighbour) {
+        ensureRows(agent + 1);
+
+        if (length[agent] == capacity[agent]) {
+            if (degree[agent] < length[agent]) {
+                compactRow(agent);
+            } else {
+                moveRow(agent, Math.max(MIN_ROW_CAPACITY, 2 * capacity[agent]));
+            }
+        }
+
+        slots[offset[agent] + length[agent]] = neighbour;
+        ++length[agent];
+        ++degree[agent];
+        ++modificationCount;
+
+        if (index[agent] != null) {
+            index[agent].add(neighbour, rows);
+        } else if (degree[agent] > INDEXED_DEGREE) {
+            index[agent] = new NeighbourSet(slots, offset[agent], offset[agent] + length[agent], TOMBSTONE,
+                    capacity[agent], rows);
+        }
+    }
+
+    /**
+     * Removes the entry of neighbour from the row of agent, if present.
+     *
+     * @param agent     the agent from whose row the neighbour is removed
+     * @param neighbour the neighbour to remove
+     * @return whether or not the neighbour was present
+     */
+    public boolean remove(int agent, int neighbour) {
+        if (agent < rows && index[agent] != null && !index[agent].contains(neighbour)) {
+            return false;
+        }
+
+        int idx = indexOf(agent, neighbour);
+
+        if (idx < 0) {
+            return false;
+        }
+
+        --degree[agent];
+        ++modificationCount;
+
+        if (index[agent] != null) {
+            index[agent].remove(neighbour);
+        }
+
+        if (idx == offset[agent] + length[agent] - 1) {
+            --length[agent];
+        } else {
+            slots[idx] = TOMBSTONE;
+            ++tombstones;
+        }
+        return true;
+    }
+
+    /**
+     * @return whether or not neighbour is stored in the row of agent
+     */
+    public boolean contains(int agent, int neighbour) {
+        if (agent < rows && index[agent] != null) {
+            return index[agent].contains(neighbour);
+        }
+        return indexOf(agent, neighbour) >= 0;
+    }
+
+    private int indexOf(int agent, int neighbour) {
+        if (agent >= rows) {
+            return -1;
+        }
+
+        int end = offset[agent] + length[agent];
+        for (int i = offset[agent]; i < end; i++) {
+            if (slots[i] == neighbour) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the neighbour at the given position, counting only actual neighbours (not tombstones). Takes constant
+     * time, unless the row holds tombstones, in which case the row is scanned up to the neighbour.
+     *
+     * @param agent the agent whose neighbour is requested
+     * @param idx   the position of the neighbour, between 0 and the degree of agent
+     * @return the id of the neighbour
+     */
+    public int get(int agent, int idx) {
+        int start = offset[agent];
+        if (degree[agent] == length[agent]) {
+            return slots[start + idx];
+        }
+
+        int end = start + length[agent];
+        int position = 0;
+        for (int i = start; i < end; i++) {
+            if (slots[i] != TOMBSTONE && position++ == idx) {
+                return slots[i];
+            }
+        }
+        throw new IndexOutOfBoundsException("Neighbour " + idx + " of agent " + agent);
+    }
+
+    /**
+     * Copies the neighbours of an agent into the given array, in order.
+     *
+     * @param agent   the agent whose neighbours are copied
+     * @param dest    the array to copy to, which must fit at least the degree of agent from destPos onwards
+     * @param destPos the position in dest at which the first neighbour is placed
+     * @return the number of neighbours copied
+     */
+    public int copyNeighbours(int agent, int[] dest, int destPos) {
+        if (agent >= rows) {
+            return 0;
+        }
+        if (degree[agent] == length[agent]) {
+            System.arraycopy(slots, offset[agent], dest, destPos, degree[agent]);
+            return degree[agent];
+        }
+
+        int pos = destPos;
+        int end = offset[agent] + length[agent];
+        for (int i = offset[agent]; i < end; i++) {
+            if (slots[i] != TOMBSTONE) {
+                dest[pos++] = slots[i];
+            }
+        }
+        return pos - destPos;
+    }
+
+    /**
+     * Removes the tombstones from all rows, and gives back the slots of rows that have been moved once enough of them
+     * have built up. Meant to be called in between epochs, so reads outside of an epoch take constant time.
+     */
+    public void compactIfNeeded() {
+        if (abandonedSlots > usedSlots / 2) {
+            compact();
+        } else {
+            removeTombstones();
+        }
+    }
+
+    /**
+     * Compacts every row that holds tombstones, so reading any neighbour by its position takes constant time.
+     */
+    public void removeTombstones() {
+        if (tombstones == 0) {
+            return;
+        }
+
+        for (int i = 0; i < rows; i++) {
+            removeTombstones(i);
+        }
+    }
+
+    /**
+     * Compacts the row of a single agent if it holds tombstones.
+     *
+     * @param agent the agent whose row is compacted
+     */
+    public void removeTombstones(int agent) {
+        if (agent < rows && degree[agent] != length[agent]) {
+            compactRow(agent);
+        }
+    }
+
+    /**
+     * Rewrites all rows back to back, keeping their reserved capacity but dropping tombstones and abandoned slots.
+     */
+    public void compact() {
+        int total = 0;
+        for (int i = 0; i < rows; i++) {
+            total += capacity[i];
+        }
+
+        int[] newSlots = new int[Math.max(total, INITIAL_CAPACITY)];
+        int pos = 0;
+
+        for (int i = 0; i < rows; i++) {
+            int end = offset[i] + length[i];
+            int newOffset = pos;
+
+            for (int j = offset[i]; j < end; j++) {
+                if (slots[j] != TOMBSTONE) {
+                    newSlots[pos++] = slots[j];
+                }
+            }
+
+            offset[i] = newOffset;
+            length[i] = degree[i];
+            pos = newOffset + capacity[i];
+        }
+
+        slots = newSlots;
+        usedSlots = pos;
+        abandonedSlots = 0;
+        tombstones = 0;
+    }
+
+    /**
+     * Shifts the neighbours within a row to the front, removing its tombstones.
+     */
+    private void compactRow(int agent) {
+        int start = offset[agent];
+        int end = start + length[agent];
+        int pos = start;
+
+        for (int i = start; i < end; i++) {
+            if (slots[i] != TOMBSTONE) {
+                slots[pos++] = slots[i];
+            }
+        }
+
+        tombstones -= length[agent] - degree[agent];
+        length[agent] = degree[agent];
+    }
+
+    /**
+     * Moves a row to the end of the slot array with the given capacity.
+     */
+    private void moveRow(int agent, int newCapacity) {
+        if (degree[agent] != length[agent]) {
+            compactRow(agent);
+        }
+
+        if (usedSlots + newCapacity > slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(slots.length * 2, usedSlots + newCapacity));
+        }
+
+        System.arraycopy(slots, offset[agent], slots, usedSlots, length[agent]);
+
+        abandonedSlots += capacity[agent];
+        offset[agent] = usedSlots;
+        capacity[agent] = newCapacity;
+        usedSlots += newCapacity;
+    }
+
+    /*
+        Getters
+     */
+
+    /**
+     * @return a number that changes whenever a connection is added or removed
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    public int getDegree(int agent) {
+        return agent < rows ? degree[agent] : 0;
+    }
+
+    /**
+     * @param agent the agent
+     * @return the number of neighbours that fit in the row of the agent without moving it
+     */
+    public int getCapacity(int agent) {
+        return agent < rows ? capacity[agent] : 0;
+    }
+
+    /**
+     * @return the number of bytes currently held by this structure
+     */
+    public long getMemoryFootprint() {
+        long footprint = 4L * (slots.length + offset.length + capacity.length + length.length + degree.length) +
+                8L * index.length;
+
+        for (int i = 0; i < rows; i++) {
+            if (index[i] != null) {
+                footprint += index[i].getMemoryFootprint();
+            }
+        }
+        return footprint;
+    }
+}
@@ -0,0 +1,170 @@
+package com.b14.model;
+
+import java.util.Arrays;
+
+/**
+ * Holds the state of all agents in primitive arrays, indexed by agent id.
+ * The spread logic reads and writes these arrays directly, so that updating an agent does not require following a
+ * reference for every agent it interacts with. Nodes act as views on top of this store.
+ * The connections between agents are kept in the Adjacency of the store, their most recent contacts in its
+ * ContactWindows, their positions in its PhysicsStore, and the parameters that apply to all of them in its
+ * SimulationConfig.
+ */
+
+public class AgentStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    float[] belief;
+    float[] openness;
+    float[] opennessOriginal;
+    float[] dissonanceThreshold;
+    float[] extraversion;
+    double[] dissonance;
+    int[] numberOfContacts;
+    int[] numberOfConflicts;
+    final Adjacency network = new Adjacency();
+    final ContactWindows contactWindows = new ContactWindows(SimulationConfig.DEFAULT.getContactWindowSize());
+    final PhysicsStore physics = new PhysicsStore();
+    SimulationConfig config = SimulationConfig.DEFAULT;
+    private Node[] nodes;
+
+    private int size;
+
+    public AgentStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Reserves room for the agent with the given id. Ids are handed out consecutively, starting at 0.
+     *
+     * @param node the view on the agent that is added
+     * @param id   the id of the agent that is added
+     * @return the id of the agent
+     */
+    int add(Node node, int id) {
+        assert (id == size) : "Agents have to be added to the store in order of their id";
+
+        if (id >= belief.length) {
+            allocate(Math.max(belief.length * 2, id + 1));
+        }
+
+        nodes[id] = node;
+        network.ensureRows(id + 1);
+        contactWindows.ensureAgents(id + 1);
+        physics.ensureNodes(id + 1);
+        size = id + 1;
+        return id;
+    }
+
+    /**
+     * Makes sure the store can hold the given amount of agents without growing.
+     *
+     * @param capacity the number of agents the store should be able to hold
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > belief.length) {
+            allocate(capacity);
+        }
+    }
+
+    /**
+     * Overwrites the beliefs of all agents.
+     *
+     * @param beliefs the new beliefs, indexed by agent id
+     */
+    public void setBeliefs(float[] beliefs) {
+        System.arraycopy(beliefs, 0, belief, 0, size);
+    }
+
+    /**
+     * Removes all agents from the store. The arrays are kept, so they can be reused for the next run.
+     */
+    public void clear() {
+        Arrays.fill(nodes, 0, size, null);
+        network.clear();
+        contactWindows.clear();
+        physics.clear();
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        if (belief == null) {
+            belief = new float[capacity];
+            openness = new float[capacity];
+            opennessOriginal = new float[capacity];
+            dissonanceThreshold = new float[capacity];
+            extraversion = new float[capacity];
+            dissonance = new double[capacity];
+            numberOfContacts = new int[capacity];
+            numberOfConflicts = new int[capacity];
+            nodes = new Node[capacity];
+            return;
+        }
+
+        belief = Arrays.copyOf(belief, capacity);
+        openness = Arrays.copyOf(openness, capacity);
+        opennessOriginal = Arrays.copyOf(opennessOriginal, capacity);
+        dissonanceThreshold = Arrays.copyOf(dissonanceThreshold, capacity);
+        extraversion = Arrays.copyOf(extraversion, capacity);
+        dissonance = Arrays.copyOf(dissonance, capacity);
+        numberOfContacts = Arrays.copyOf(numberOfContacts, capacity);
+        numberOfConflicts = Arrays.copyOf(numberOfConflicts, capacity);
+        nodes = Arrays.copyOf(nodes, capacity);
+    }
+
+    /**
+     * @return the number of bytes used per agent by the arrays in this store
+     */
+    public static int getBytesPerAgent() {
+        return 5 * Float.BYTES + Double.BYTES + 2 * Integer.BYTES;
+    }
+
+    /*
+        Getters
+     */
+
+    public int size() {
+        return size;
+    }
+
+    public Node getNode(int id) {
+        return nodes[id];
+    }
+
+    public Adjacency getNetwork() {
+        return network;
+    }
+
+    public ContactWindows getContactWindows() {
+        return contactWindows;
+    }
+
+    public PhysicsStore getPhysics() {
+        return physics;
+    }
+
+    public SimulationConfig getConfig() {
+        return config;
+    }
+
+    public float getBelief(int id) {
+        return belief[id];
+    }
+
+    public float getOpenness(int id) {
+        return openness[id];
+    }
+
+    public float getDissonanceThreshold(int id) {
+        return dissonanceThreshold[id];
+    }
+
+    public float getExtraversion(int id) {
+        return extraversion[id];
+    }
+
+    public double getDissonance(int id) {
+        return dissonance[id];
+    }
+}
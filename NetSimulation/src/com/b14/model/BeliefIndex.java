@@ -0,0 +1,188 @@
+package com.b14.model;
+
+import java.util.Arrays;
+
+/**
+ * The agents of a store ordered by belief, so the agents within a range of beliefs can be found with a binary search
+ * instead of a scan over all agents.
+ * <p>
+ * The index is a snapshot: it holds the beliefs as they were at the last update, which is done once per epoch.
+ * As beliefs only change a little from one epoch to the next, the previous order is nearly sorted already, and an
+ * update is an insertion sort that costs little more than a pass over the agents. When too many agents have moved,
+ * the index is sorted from scratch instead.
+ */
+
+public class BeliefIndex {
+
+    // An insertion sort may shift this many agents per agent in the index, before a full sort is used instead
+    private static final int MAX_SHIFTS_PER_AGENT = 8;
+
+    private final AgentStore store;
+    private int[] order = new int[0];
+    private float[] beliefs = new float[0];
+    private long[] sortKeys = new long[0];
+    private int size = 0;
+
+    /**
+     * Creates an index over the agents of a store. It is empty until the first update.
+     *
+     * @param store the store holding the agents and their beliefs
+     */
+    public BeliefIndex(AgentStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Creates an index over the agents of a model. It is empty until the first update.
+     *
+     * @param model the model holding the agents and their beliefs
+     */
+    public BeliefIndex(ReadOnlyModel model) {
+        this(model.store);
+    }
+
+    /**
+     * Reorders the index according to the current beliefs of the agents in the store.
+     */
+    public void update() {
+        int numAgents = store.size();
+
+        if (order.length < numAgents) {
+            order = new int[numAgents];
+            beliefs = new float[numAgents];
+        }
+
+        if (numAgents != size) {
+            size = numAgents;
+            sortFully();
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            beliefs[i] = store.belief[order[i]];
+        }
+
+        if (!insertionSort((long) MAX_SHIFTS_PER_AGENT * size)) {
+            sortFully();
+        }
+    }
+
+    /**
+     * Sorts the agents by belief, using the order of the previous update as starting point.
+     *
+     * @param maxShifts the number of shifts after which the sort gives up
+     * @return whether or not the index is sorted
+     */
+    private boolean insertionSort(long maxShifts) {
+        long shifts = 0;
+
+        for (int i = 1; i < size; i++) {
+            float belief = beliefs[i];
+            int agent = order[i];
+            int j = i - 1;
+
+            while (j >= 0 && (beliefs[j] > belief || (beliefs[j] == belief && order[j] > agent))) {
+                beliefs[j + 1] = beliefs[j];
+                order[j + 1] = order[j];
+                j--;
+            }
+
+            beliefs[j + 1] = belief;
+            order[j + 1] = agent;
+
+            shifts += i - 1 - j;
+            if (shifts > maxShifts) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Sorts all agents by belief, and by id for equal beliefs.
+     */
+    private void sortFully() {
+        if (sortKeys.length < size) {
+            sortKeys = new long[size];
+        }
+
+        // The bits of a float, made to sort as a signed int, followed by the id of the agent
+        for (int id = 0; id < size; id++) {
+            int bits = Float.floatToIntBits(store.belief[id]);
+            bits ^= (bits >> 31) & 0x7FFFFFFF;
+            sortKeys[id] = ((long) bits << 32) | id;
+        }
+
+        Arrays.sort(sortKeys, 0, size);
+
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) sortKeys[i];
+            beliefs[i] = store.belief[order[i]];
+        }
+    }
+
+    /**
+     * @param belief the belief to search for
+     * @return the position of the first agent with a belief of at least the given belief, or size() if there is none
+     */
+    public int firstAtLeast(float belief) {
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (beliefs[mid] < belief) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @param belief the belief to search for
+     * @return the position of the first agent with a belief above the given belief, or size() if there is none
+     */
+    public int firstAbove(float belief) {
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (beliefs[mid] <= belief) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /*
+        Getters
+     */
+
+    /**
+     * @param position a position in the index
+     * @return the id of the agent at that position
+     */
+    public int getAgent(int position) {
+        return order[position];
+    }
+
+    /**
+     * @param position a position in the index
+     * @return the belief of the agent at that position, as it was at the last update
+     */
+    public float getBelief(int position) {
+        return beliefs[position];
+    }
+
+    public int size() {
+        return size;
+    }
+}
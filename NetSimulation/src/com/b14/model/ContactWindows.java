@@ -0,0 +1,171 @@
+package com.b14.model;
+
+import java.util.Arrays;
+
+/**
+ * Remembers, for every agent, which of its most recent contacts were conflicts, as a moving window of bits.
+ * <p>
+ * The window of an agent is a ring of bits in one shared array of longs, taking a single long when the window is at
+ * most 64 contacts long. Next to the bits, the number of conflicts within the window is kept up to date, so recording
+ * a contact and reading the share of conflicts both take constant time, whatever the size of the window.
+ */
+
+public class ContactWindows {
+
+    private int windowSize;
+    private int wordsPerAgent;
+    private long[] bits = new long[0];
+    private int[] head = new int[0];      // position in the ring where the next contact is recorded
+    private int[] length = new int[0];    // number of contacts in the window
+    private int[] conflicts = new int[0]; // number of conflicts in the window
+    private int numAgents;
+
+    /**
+     * Creates empty windows
+     *
+     * @param windowSize the number of contacts a window holds
+     */
+    public ContactWindows(int windowSize) {
+        assert (windowSize > 0) : "A contact window has to hold at least one contact";
+
+        this.windowSize = windowSize;
+        wordsPerAgent = getWordsPerAgent(windowSize);
+    }
+
+    /**
+     * Makes sure there is an empty window for every agent id below the given number.
+     *
+     * @param numAgents the number of agents that should have a window
+     */
+    public void ensureAgents(int numAgents) {
+        if (numAgents > head.length) {
+            int newLength = Math.max(head.length * 2, numAgents);
+            bits = Arrays.copyOf(bits, newLength * wordsPerAgent);
+            head = Arrays.copyOf(head, newLength);
+            length = Arrays.copyOf(length, newLength);
+            conflicts = Arrays.copyOf(conflicts, newLength);
+        }
+
+        for (int agent = this.numAgents; agent < numAgents; agent++) {
+            Arrays.fill(bits, agent * wordsPerAgent, (agent + 1) * wordsPerAgent, 0L);
+            head[agent] = 0;
+            length[agent] = 0;
+            conflicts[agent] = 0;
+        }
+        this.numAgents = Math.max(this.numAgents, numAgents);
+    }
+
+    /**
+     * Removes the windows of all agents. The arrays are kept to be reused.
+     */
+    public void clear() {
+        numAgents = 0;
+    }
+
+    /**
+     * Adds a contact to the window of an agent, pushing out the oldest contact if the window is full.
+     *
+     * @param agent    the agent that had the contact
+     * @param conflict whether or not the contact was a conflict
+     */
+    public void record(int agent, boolean conflict) {
+        int position = head[agent];
+        int word = agent * wordsPerAgent + (position >>> 6);
+        long bit = 1L << position;
+
+        if (length[agent] == windowSize) {
+            if ((bits[word] & bit) != 0) {
+                --conflicts[agent];
+            }
+        } else {
+            ++length[agent];
+        }
+
+        if (conflict) {
+            bits[word] |= bit;
+            ++conflicts[agent];
+        } else {
+            bits[word] &= ~bit;
+        }
+
+        head[agent] = (position + 1 == windowSize) ? 0 : position + 1;
+    }
+
+    /**
+     * Changes the number of contacts a window holds. The most recent contacts of every agent are kept.
+     *
+     * @param windowSize the new number of contacts a window holds
+     */
+    public void setWindowSize(int windowSize) {
+        assert (windowSize > 0) : "A contact window has to hold at least one contact";
+
+        if (windowSize == this.windowSize) {
+            return;
+        }
+
+        int newWordsPerAgent = getWordsPerAgent(windowSize);
+        long[] newBits = new long[head.length * newWordsPerAgent];
+
+        for (int agent = 0; agent < numAgents; agent++) {
+            int kept = Math.min(length[agent], windowSize);
+            int newConflicts = 0;
+
+            // Copy the kept contacts from oldest to newest, to the start of the new ring
+            for (int k = 0; k < kept; k++) {
+                int position = head[agent] - kept + k;
+                if (position < 0) {
+                    position += this.windowSize;
+                }
+
+                if ((bits[agent * wordsPerAgent + (position >>> 6)] & (1L << position)) != 0) {
+                    newBits[agent * newWordsPerAgent + (k >>> 6)] |= 1L << k;
+                    ++newConflicts;
+                }
+            }
+
+            head[agent] = (kept == windowSize) ? 0 : kept;
+            length[agent] = kept;
+            conflicts[agent] = newConflicts;
+        }
+
+        this.windowSize = windowSize;
+        wordsPerAgent = newWordsPerAgent;
+        bits = newBits;
+    }
+
+    private static int getWordsPerAgent(int windowSize) {
+        return (windowSize + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /*
+        Getters
+     */
+
+    /**
+     * @param agent the agent
+     * @return the number of conflicts divided by the number of contacts in the window of the agent; NaN when the
+     * agent has not had any contacts yet
+     */
+    public double getConflictRatio(int agent) {
+        return (double) conflicts[agent] / length[agent];
+    }
+
+    public int getConflicts(int agent) {
+        return conflicts[agent];
+    }
+
+    public int getLength(int agent) {
+        return length[agent];
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return the number of bytes currently held by this structure
+     */
+    public long getMemoryFootprint() {
+        return 8L * bits.length + 4L * (head.length + length.length + conflicts.length);
+    }
+}
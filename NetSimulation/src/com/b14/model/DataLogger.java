@@ -8,7 +8,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.Calendar;
 
 /**
@@ -75,6 +75,15 @@ public class DataLogger {
             System.out.println("Failed to write headers to output file!");
         }
 
+        // The seed the run can be repeated from, by entering it when resetting the model
+        try {
+            FileWriter fw = new FileWriter(new File(runFolder, "seed.txt"));
+            fw.write(model.getSeed() + "\n");
+            fw.close();
+        } catch (IOException e) {
+            System.out.println("Failed to write the seed of the run!");
+        }
+
         createdFileSinceToggled = true;
     }
 
@@ -105,7 +114,7 @@ public class DataLogger {
                 String result = epoch + "," + n.getId() + "," + n.getBelief() + "," +
                         (n.getDissonanceThreshold() - n.getCurrentDissonance()) + "," + n.getCurrentDissonance() + "," +
                         n.getNeighbours().size() + "," + getAvgBelief(n.getNeighbours()) + "," +
-                        n.getConfidenceSet().size() + "," + getAvgBelief(n.getConfidenceSet()) + "," +
+                        n.getConfidenceSetSize() + "," + n.getAvgConfidantBelief() + "," +
                         n.getNumberOfContacts() + "," + n.getNumberOfConflicts() + "," + n.getIndividualConnectionLimit() +
                         "," + n.getOpenness() + "," + n.getWeightedOpenness() + "," + n.getExtraversion() + "," + n.getDissonanceThreshold() +
                         "\n";
@@ -189,7 +198,7 @@ public class DataLogger {
     }
 
     // Utility function
-    private float getAvgBelief(ArrayList<Node> nodes) {
+    private float getAvgBelief(List<Node> nodes) {
         float res = 0.0f;
 
         if (nodes.size() == 0) {    //Perhaps not technically correct?
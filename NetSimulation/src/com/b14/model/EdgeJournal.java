@@ -0,0 +1,157 @@
+package com.b14.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the connections agents want to add or remove during a phase of an epoch, so they can be applied afterwards
+ * in a single commit step. While a phase runs, the network is only read, so workers never need to lock it.
+ * <p>
+ * Every worker writes to its own journal. An intent belongs to the agent that made it, and a worker has to process
+ * its agents in increasing order of id. The commit merges the journals of all workers into one sequence ordered by
+ * agent id (keeping the order in which an agent made its intents), and applies them one by one with the usual checks:
+ * a connection is only added if both agents are below their connection limit (see Node.canTwoConnect) and are not
+ * connected yet, and only removed if it exists. Conflicting intents, such as several agents competing for the last
+ * free connection of another agent, are therefore resolved in favour of the agent with the lowest id, no matter how
+ * the agents were divided over the workers.
+ */
+
+public class EdgeJournal {
+
+    private static final int ADD = 0;
+    private static final int REMOVE = 1;
+
+    // Intents, stored as (operation, agent, other agent) triples in the order they were made
+    private int[] intents = new int[3 * 64];
+    private int size = 0;
+
+    /**
+     * Records that an agent wants to connect to another agent
+     *
+     * @param agent the agent making the intent
+     * @param other the agent to connect to
+     */
+    public void recordAdd(int agent, int other) {
+        record(ADD, agent, other);
+    }
+
+    /**
+     * Records that an agent wants to disconnect from another agent
+     *
+     * @param agent the agent making the intent
+     * @param other the agent to disconnect from
+     */
+    public void recordRemove(int agent, int other) {
+        record(REMOVE, agent, other);
+    }
+
+    private void record(int operation, int agent, int other) {
+        assert (size == 0 || intents[3 * size - 2] <= agent) : "Agents have to be journaled in order of their id";
+
+        if (3 * size + 3 > intents.length) {
+            intents = Arrays.copyOf(intents, intents.length * 2);
+        }
+
+        int pos = 3 * size++;
+        intents[pos] = operation;
+        intents[pos + 1] = agent;
+        intents[pos + 2] = other;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Applies the intents of all journals, ordered by the agent that made them, and clears the journals.
+     *
+     * @param journals the journals to commit
+     * @param store    the store holding the agents and network the intents refer to
+     * @param listener informed of every change that was actually made, may be null
+     * @return the number of intents that were rejected, because of connection limits or the current network
+     */
+    public static int commit(List<EdgeJournal> journals, AgentStore store, Listener listener) {
+        int[] position = new int[journals.size()];
+        int rejected = 0;
+
+        while (true) {
+            // Pick the journal whose next intent belongs to the agent with the lowest id
+            int next = -1;
+            int lowestAgent = Integer.MAX_VALUE;
+
+            for (int j = 0; j < journals.size(); j++) {
+                EdgeJournal journal = journals.get(j);
+
+                if (position[j] < journal.size && journal.intents[3 * position[j] + 1] < lowestAgent) {
+                    lowestAgent = journal.intents[3 * position[j] + 1];
+                    next = j;
+                }
+            }
+
+            if (next == -1) {
+                break;
+            }
+
+            // Apply all intents of that agent
+            EdgeJournal journal = journals.get(next);
+            while (position[next] < journal.size && journal.intents[3 * position[next] + 1] == lowestAgent) {
+                int pos = 3 * position[next]++;
+
+                if (!journal.apply(pos, store, listener)) {
+                    ++rejected;
+                }
+            }
+        }
+
+        for (EdgeJournal journal : journals) {
+            journal.clear();
+        }
+
+        return rejected;
+    }
+
+    /**
+     * Applies the intent at the given position
+     *
+     * @return whether or not the network was changed
+     */
+    private boolean apply(int pos, AgentStore store, Listener listener) {
+        Adjacency network = store.network;
+        int modificationCount = network.getModificationCount();
+
+        int agent = intents[pos + 1];
+        int other = intents[pos + 2];
+
+        if (intents[pos] == ADD) {
+            store.getNode(agent).addNeighbour(store.getNode(other));
+        } else {
+            store.getNode(agent).removeNeighbour(store.getNode(other));
+        }
+
+        if (modificationCount == network.getModificationCount()) {
+            return false;
+        }
+
+        if (listener != null) {
+            if (intents[pos] == ADD) {
+                listener.edgeAdded(agent, other);
+            } else {
+                listener.edgeRemoved(agent, other);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Is informed of the network changes that are made when journals are committed
+     */
+    public interface Listener {
+        void edgeAdded(int agent, int other);
+
+        void edgeRemoved(int agent, int other);
+    }
+}
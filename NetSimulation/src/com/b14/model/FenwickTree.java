@@ -0,0 +1,76 @@
+package com.b14.model;
+
+/**
+ * A Fenwick tree (binary indexed tree) over a list of non-negative weights. Changing a weight and finding the entry
+ * at which the running sum of the weights passes a value both take logarithmic time, which allows drawing an entry
+ * with a probability proportional to its weight while the weights change.
+ */
+
+public final class FenwickTree {
+
+    private final int[] tree; // tree[i] holds the sum of the weights in (i - lowestOneBit(i), i], 1-based
+    private final int[] weights;
+    private final int highestBit;
+
+    /**
+     * Creates a tree over the given weights, in linear time
+     *
+     * @param weights the initial weights, which are copied
+     */
+    public FenwickTree(int[] weights) {
+        this.weights = weights.clone();
+        tree = new int[weights.length + 1];
+        highestBit = Integer.highestOneBit(Math.max(1, weights.length));
+
+        for (int i = 1; i <= weights.length; i++) {
+            tree[i] += weights[i - 1];
+            int parent = i + Integer.lowestOneBit(i);
+            if (parent <= weights.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    /**
+     * Changes the weight of an entry
+     *
+     * @param index  the index of the entry
+     * @param weight the new weight, at least 0
+     */
+    public void set(int index, int weight) {
+        int delta = weight - weights[index];
+        weights[index] = weight;
+
+        for (int i = index + 1; i < tree.length; i += Integer.lowestOneBit(i)) {
+            tree[i] += delta;
+        }
+    }
+
+    public int get(int index) {
+        return weights[index];
+    }
+
+    /**
+     * Finds the first entry at which the running sum of the weights, up to and including that entry, exceeds the given
+     * value. With weights of 0 and 1, this is the entry at the given position among the entries of weight 1.
+     *
+     * @param value the value the running sum should exceed, at least 0
+     * @return the index of the entry, or the number of entries if the sum of all weights does not exceed the value
+     */
+    public int findByRunningSum(int value) {
+        int position = 0; // the number of entries whose running sum does not exceed the value, so far
+
+        for (int bit = highestBit; bit > 0; bit >>= 1) {
+            int next = position + bit;
+            if (next < tree.length && tree[next] <= value) {
+                position = next;
+                value -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    public int size() {
+        return weights.length;
+    }
+}
@@ -1,13 +1,15 @@
 package com.b14.model;
 
+import com.b14.model.recommendationstrategies.PolarizeStrategy;
 import com.b14.model.recommendationstrategies.RecommendationStrategy;
+import com.b14.model.spreadengines.SequentialSpreadEngine;
+import com.b14.model.spreadengines.SpreadEngine;
 
-import javax.naming.OperationNotSupportedException;
 import java.beans.PropertyChangeEvent;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Functionality for the entire network is stored here.
@@ -16,31 +18,55 @@ import java.util.ArrayList;
 public class GraphModel extends GraphPhysicsModel {
 
     private final DataLogger dl;
+    private final ReadOnlyModel readOnlyModel;
     private int epoch;
-    private RecommendationStrategy.Strategy rs;
+    private RecommendationStrategy rs;
     private int recommendationSize;
+    private SpreadEngine spreadEngine;
 
     /**
-     * initializes a graph model
+     * initializes a graph model, which runs its workers on the threads shared by all models
      *
      * @param dl the data-logger instance that is being used to record data output
      */
 
     public GraphModel(DataLogger dl) {
+        this(dl, WorkerThreads.getShared());
+    }
+
+    /**
+     * initializes a graph model
+     *
+     * @param dl      the data-logger instance that is being used to record data output
+     * @param workers the executor the physics and spread steps run their workers on, which may be shared by many models
+     */
+
+    public GraphModel(DataLogger dl, ExecutorService workers) {
+        super(workers);
         this.dl = dl;
+        readOnlyModel = new ReadOnlyModel(this);
 
-        rs = RecommendationStrategy.Strategy.POLARIZE;
+        rs = new PolarizeStrategy();
         recommendationSize = 20;
+        spreadEngine = new SequentialSpreadEngine();
         epoch = 0;
     }
 
     /**
-     * Setup a simple simulation.
+     * Setup a simple simulation, from a fresh seed.
      */
 
     public void startRandom(int numNodes) {
-        epoch = 0;
         super.startRandom(numNodes);
+    }
+
+    /**
+     * Setup a simple simulation from the given seed, which gives the same simulation every time.
+     */
+
+    public void startRandom(int numNodes, long seed) {
+        epoch = 0;
+        super.startRandom(numNodes, seed);
         dl.startNewCapture();
     }
 
@@ -48,23 +74,9 @@ public class GraphModel extends GraphPhysicsModel {
      * Performs 1 spreading step for entire network.
      */
     public void simulateSpreadStep() {
-        try {
-            for (Node n : nodes) {
-                n.reset(); // clear confidence set
-                ArrayList<Node> recommended = RecommendationStrategy.recommend(rs, nodes, n, recommendationSize);
-                n.receiveMessages(recommended);
-            }
-        } catch (OperationNotSupportedException e) {
-            System.err.println("Attempted to use a recommendation strategy that has not been implemented yet in recommend.");
-            System.err.println("Update is aborted, but step may have been completed partially. Data may not be valid anymore!");
-            return;
-        }
-        // perform fraternize on entire network AFTER all received message + dissonance update
-        for (Node n : nodes) {
-            if (n.getCanConnect()) {
-                n.fraternize();
-            }
-        }
+        rs.prepare(readOnlyModel);
+        spreadEngine.spreadStep(this);
+        agents.getNetwork().compactIfNeeded();
         epoch += 1;
 
         dl.logData(epoch);
@@ -83,16 +95,29 @@ public class GraphModel extends GraphPhysicsModel {
     }
 
     /**
-     * Loads in agents on the basis of a CSV file specifying the traits of each agent in the network.
+     * Loads in agents on the basis of a CSV file specifying the traits of each agent in the network, from a fresh seed.
      */
     public void setAgentsFromFile(String filePath) throws IOException {
+        setAgentsFromFile(filePath, RandomStreams.createSeed());
+    }
 
+    /**
+     * Loads in agents on the basis of a CSV file specifying the traits of each agent in the network.
+     *
+     * @param seed the seed of the run, from which the remaining traits and the network follow
+     */
+    public void setAgentsFromFile(String filePath, long seed) throws IOException {
+
+        randomStreams.setSeed(seed);
         nextFreeID = 0;
         nodes.clear();
+        agents.clear();
         epoch = 0;
 
         BufferedReader reader = new BufferedReader(new FileReader(filePath));
         String line = reader.readLine().strip();
+        SplitMixRandom random = randomStreams.get(RandomStreams.SETUP_EPOCH, RandomStreams.NO_AGENT,
+                RandomStreams.AGENT_SETUP);
 
         if (!line.equals("neuroticism,extraversion,openness")) {
             throw new IOException();
@@ -103,7 +128,8 @@ public class GraphModel extends GraphPhysicsModel {
             if (line != null) {
                 String[] vals = line.strip().split(",");
 
-                nodes.add(new Node(nextFreeID++, Float.parseFloat(vals[0]), Float.parseFloat(vals[1]),
+                randomStreams.select(random, RandomStreams.SETUP_EPOCH, nextFreeID, RandomStreams.AGENT_SETUP);
+                nodes.add(new Node(agents, nextFreeID++, random, Float.parseFloat(vals[0]), Float.parseFloat(vals[1]),
                         Float.parseFloat(vals[2])));
             }
         } while (line != null);
@@ -131,33 +157,74 @@ public class GraphModel extends GraphPhysicsModel {
      * Setters
      */
 
-    public RecommendationStrategy.Strategy getRecommendationStrategy() {
+    public RecommendationStrategy getRecommendationStrategy() {
         return rs;
     }
 
-    public void setRecommendationStrategy(RecommendationStrategy.Strategy rs) {
+    /**
+     * Changes the strategy used to recommend new connections to the nodes.
+     *
+     * @param rs the strategy to use from now on, which must not be used by another model
+     */
+    public void setRecommendationStrategy(RecommendationStrategy rs) {
         this.rs = rs;
         pcs.firePropertyChange(new PropertyChangeEvent(this, "recommendSettingsChange", null, null));
     }
 
-    public void setConnectionLimitOnNodes(int newLimit) {
-        Node.setConnectionLimit(newLimit);
+    public SpreadEngine getSpreadEngine() {
+        return spreadEngine;
+    }
 
-        for (Node n : nodes) {
+    /**
+     * Changes the engine used to perform spread steps
+     *
+     * @param spreadEngine the engine to use from now on
+     */
+    public void setSpreadEngine(SpreadEngine spreadEngine) {
+        this.spreadEngine = spreadEngine;
+        pcs.firePropertyChange(new PropertyChangeEvent(this, "recommendSettingsChange", null, null));
+    }
 
-            while (n.getConnectionCount() > n.getIndividualConnectionLimit()) {
-                Node nodeToRemove = n.getNeighbours().get(random.nextInt(n.getConnectionCount()));
-                n.removeNeighbour(nodeToRemove);
+    public SimulationConfig getConfig() {
+        return agents.config;
+    }
+
+    /**
+     * Changes the parameters of this simulation. When the connection limit is changed, nodes that are above their new
+     * limit lose connections at random. When the openness weight is changed, the openness of all nodes is reweighted.
+     *
+     * @param config the parameters to use from now on
+     */
+    public void setConfig(SimulationConfig config) {
+        SimulationConfig previous = agents.config;
+        agents.config = config;
+
+        if (config.getConnectionLimit() != previous.getConnectionLimit()) {
+            applyConnectionLimit();
+        }
+        if (config.getOpennessWeight() != previous.getOpennessWeight()) {
+            for (Node n : nodes) {
+                n.setReweightedOpenness();
             }
         }
+        if (config.getContactWindowSize() != previous.getContactWindowSize()) {
+            agents.contactWindows.setWindowSize(config.getContactWindowSize());
+        }
         pcs.firePropertyChange(new PropertyChangeEvent(this, "modelChange", null, null));
     }
 
-    public void setReweightedOpenness() {
+    private void applyConnectionLimit() {
+        reserveConnections();
+        SplitMixRandom random = randomStreams.get(epoch, RandomStreams.NO_AGENT, RandomStreams.CONNECTION_LIMIT);
+
         for (Node n : nodes) {
-            n.setReweightedOpenness();
+            randomStreams.select(random, epoch, n.getId(), RandomStreams.CONNECTION_LIMIT);
+
+            while (n.getConnectionCount() > n.getIndividualConnectionLimit()) {
+                Node nodeToRemove = n.getNeighbours().get(random.nextInt(n.getConnectionCount()));
+                n.removeNeighbour(nodeToRemove);
+            }
         }
-        pcs.firePropertyChange(new PropertyChangeEvent(this, "modelChange", null, null));
     }
 
 }
@@ -1,12 +1,19 @@
 package com.b14.model;
 
+import com.b14.model.networkgenerators.NetworkGenerator;
+import com.b14.model.networkgenerators.PreferentialAttachmentGenerator;
+import com.b14.model.physicsengines.GridPushEngine;
+import com.b14.model.physicsengines.PushForceEngine;
+
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 /**
  * A class that is responsible for all physics updates to a network of nodes.
@@ -14,7 +21,8 @@ import java.util.Random;
 
 public class GraphPhysicsModel {
 
-    protected final Random random = new Random(0);
+    // Every random draw of the simulation comes from these streams, keyed by the seed of the run
+    protected final RandomStreams randomStreams = new RandomStreams(RandomStreams.createSeed());
     //For stable behaviour, pushRange < springLength
     private final double PUSH_RANGE = 90.0f;
     private final double PUSH_CONSTANT = 0.1f;
@@ -24,15 +32,37 @@ public class GraphPhysicsModel {
     private final Vector2D CENTER = new Vector2D(512, 384);
     protected int nextFreeID;
     protected ArrayList<Node> nodes;
+    protected final AgentStore agents;
     protected PropertyChangeSupport pcs;
     private double centerForce = 0.5f;
+    private PushForceEngine pushForceEngine = new GridPushEngine();
+    private final ExecutorService workers;
+    private PhysicsPool physicsPool;
+    private double[] chunkSpeeds = new double[0];
+    // Counts the physics steps since setup, to pick the random streams that separate nodes on the exact same spot
+    private int stepCount;
+    private boolean sleeping = true;
+    private NetworkGenerator networkGenerator = new PreferentialAttachmentGenerator();
 
 
     /**
-     * Creates a new GraphPhysicsModel
+     * Creates a new GraphPhysicsModel, whose physics runs on the threads shared by all models
      */
     public GraphPhysicsModel() {
+        this(WorkerThreads.getShared());
+    }
+
+    /**
+     * Creates a new GraphPhysicsModel
+     *
+     * @param workers the executor the physics and spread steps of this model run their workers on
+     */
+    public GraphPhysicsModel(ExecutorService workers) {
+        this.workers = workers;
+        physicsPool = new PhysicsPool(workers, Runtime.getRuntime().availableProcessors());
         nodes = new ArrayList<>();
+        agents = new AgentStore();
+        agents.physics.setInitialLayout(this::nodeSpacingSetup);
 
         pcs = new PropertyChangeSupport(this);
     }
@@ -42,15 +72,22 @@ public class GraphPhysicsModel {
     /**
      * Forces nodes to space out: Edges function as springs,
      * and all nodes that are close to one another enact a force towards each other, to force them to space apart.
+     * <p>
+     * The nodes are split into chunks that are handled by the threads of the physics pool. Every node only collects
+     * the forces on itself, from the positions at the start of the step, so the threads never write to the same node.
+     * Nodes on the exact same spot draw their direction from a stream chosen by the step and the chunk, so the result
+     * does not depend on the number of threads.
+     * <p>
+     * With sleeping on, nodes that have been resting for a while are skipped until something moves them. Once all
+     * nodes sleep, an update does nothing, and no event is fired as there is nothing to redraw.
      */
     public double physicsUpdate() {
-        for (int i = 0; i < nodes.size(); i++) {
-            applyPushForce(i);
-            applySpringForce(i);
+        agents.physics.ensureLaidOut();
+        if (sleeping && agents.physics.isAtRest()) {
+            return 0;
         }
 
-        applyGravity();
-        double avgVelocity = transferForces();
+        double avgVelocity = physicsStep(agents.physics, agents.network, nodes.size());
 
         pcs.firePropertyChange(new PropertyChangeEvent(this, "physicsUpdate", null, avgVelocity));
 
@@ -58,127 +95,217 @@ public class GraphPhysicsModel {
     }
 
     /**
-     * Setup a simple simulation.
+     * Lets the layout settle, by performing physics updates until the average velocity of the nodes is at most the
+     * given maximum, or the maximum number of steps has been taken.
+     * <p>
+     * In multilevel mode, coarsened versions of the network are laid out first, from the coarsest to the finest, each
+     * starting from the current positions. The full network then starts out close to its settled layout, and usually
+     * needs only a few steps.
+     *
+     * @param maxAvgVelocity the average velocity at which the layout counts as settled
+     * @param maxSteps       the maximum number of steps on the full network
+     * @param multilevel     whether or not to lay out coarsened versions of the network first
+     * @return the number of steps taken on the full network
      */
+    public int settle(double maxAvgVelocity, int maxSteps, boolean multilevel) {
+        double avgVelocity;
+        int steps;
+        agents.physics.ensureLaidOut();
+
+        if (multilevel) {
+            agents.network.removeTombstones();
+            MultilevelLayout layout = new MultilevelLayout(agents.network, agents.physics, nodes.size());
+            int maxCoarseSteps = Math.min(maxSteps, MultilevelLayout.MAX_STEPS_PER_LEVEL);
+
+            for (int level = layout.getNumLevels() - 1; level > 0; level--) {
+                steps = 0;
+                do {
+                    avgVelocity = physicsStep(layout.getPhysics(level), layout.getNetwork(level),
+                            layout.getSize(level));
+                    steps++;
+                } while (avgVelocity > maxAvgVelocity && steps < maxCoarseSteps);
+
+                layout.prolong(level);
+            }
 
-    protected void startRandom(int numNodes) {
-        createNodes(numNodes);
+            // The nodes have been moved past the physics
+            agents.physics.wakeAll();
+        }
 
-        setupNetworkStructure();
+        steps = 0;
+        do {
+            avgVelocity = physicsUpdate();
+            steps++;
+        } while (avgVelocity > maxAvgVelocity && steps < maxSteps);
+
+        return steps;
     }
 
     /**
-     * Create Nodes.
+     * Performs a physics step on a network
      *
-     * @param numNodes Number of nodes to be created for the network.
+     * @param physics  the physics state of the nodes
+     * @param network  the connections between the nodes, which act as springs
+     * @param numNodes the number of nodes
+     * @return the average velocity of the nodes after the step
      */
-
-    private void createNodes(int numNodes) {
-        assert (numNodes > 5) : "Too few nodes defined in startRandom";
-        nextFreeID = 0;
-        nodes.clear();
-
-        for (int i = 0; i < numNodes; i++) {
-            nodes.add(new Node(nextFreeID++));
+    private double physicsStep(PhysicsStore physics, Adjacency network, int numNodes) {
+        if (sleeping && physics.isAtRest()) {
+            return 0;
         }
-    }
 
-    protected void setupNetworkStructure() {
-        connectProportionate();
-        createLoops();
-        nodeSpacingSetup();
+        int step = stepCount++;
 
-        pcs.firePropertyChange(new PropertyChangeEvent(this, "modelChange", null, null));
-    }
+        // Rows are only read from here on, also by the threads of the pool
+        network.removeTombstones();
+        // Sleeping nodes still push the nodes around them, so all nodes are prepared
+        pushForceEngine.prepare(physics, numNodes, PUSH_RANGE);
 
-    /**
-     * Connects the nodes to each other in a proportionate fashion, where nodes with more connections
-     * are more likely to receive new connections.
-     */
-    private void connectProportionate() {
-        int numNodes = nodes.size();
+        physicsPool.run(numNodes, (context, from, to) -> {
+            randomStreams.select(context.getRandom(), step, from, RandomStreams.PHYSICS);
 
-        ArrayList<Node> unassigned = new ArrayList<>(nodes);
+            // The forces are applied to the runs of awake nodes between the sleeping ones
+            int start = from;
+            while (start < to) {
+                int end = start;
+                while (end < to && !(sleeping && physics.isAsleep(end))) {
+                    end++;
+                }
 
-        Node outgoing = unassigned.get(0);
-        Node ingoing = unassigned.get(1);
+                if (end > start) {
+                    pushForceEngine.applyPushForces(physics, start, end, PUSH_RANGE, PUSH_CONSTANT, context);
+                    applySpringForcesAndGravity(physics, network, start, end, context.getRandom());
+                }
+                start = end + 1;
+            }
+        });
+
+        if (chunkSpeeds.length < PhysicsPool.getNumChunks(numNodes)) {
+            chunkSpeeds = new double[PhysicsPool.getNumChunks(numNodes)];
+        }
+        physicsPool.run(numNodes, (context, from, to) ->
+                chunkSpeeds[from / PhysicsPool.CHUNK_SIZE] = physics.integrate(from, to, sleeping));
 
-        outgoing.addNeighbour(ingoing);
-        unassigned.remove(outgoing);
-        unassigned.remove(ingoing);
+        if (sleeping) {
+            physics.wakeAroundMovingNodes(network, numNodes, PUSH_RANGE);
+        }
 
-        int totalConnections = 2;
+        // Summed in order of the chunks, for the same result with any number of threads
+        double totalSpeed = 0;
+        for (int chunk = 0; chunk < PhysicsPool.getNumChunks(numNodes); chunk++) {
+            totalSpeed += chunkSpeeds[chunk];
+        }
+        return totalSpeed / numNodes;
+    }
 
-        for (Node unconnected : unassigned) {
+    /**
+     * Setup a simple simulation, from a fresh seed.
+     */
 
-            int selected = random.nextInt(totalConnections);
-            int selectedIdx = 0;
+    protected void startRandom(int numNodes) {
+        startRandom(numNodes, RandomStreams.createSeed());
+    }
 
-            for (int i = 0; i < numNodes; i++) {
-                int numConnections = nodes.get(i).getNeighbours().size();
+    /**
+     * Setup a simple simulation. Every random draw of the simulation follows from the seed, so the same seed and
+     * settings always give the same simulation.
+     *
+     * @param numNodes Number of nodes to be created for the network.
+     * @param seed     The seed of the run.
+     */
 
-                if (numConnections != nodes.get(i).getIndividualConnectionLimit()) {
-                    selected -= nodes.get(i).getNeighbours().size();
-                }
+    protected void startRandom(int numNodes, long seed) {
+        randomStreams.setSeed(seed);
+        createNodes(numNodes);
 
-                if (selected < 0) {
-                    selectedIdx = i;
-                    break;
-                }
-            }
+        setupNetworkStructure();
+    }
 
-            Node newNeighbour = nodes.get(selectedIdx);
-            newNeighbour.addNeighbour(unconnected);
+    /**
+     * Create Nodes.
+     *
+     * @param numNodes Number of nodes to be created for the network.
+     */
 
-            totalConnections += 2;
+    private void createNodes(int numNodes) {
+        assert (numNodes > 5) : "Too few nodes defined in startRandom";
+        nextFreeID = 0;
+        nodes.clear();
+        agents.clear();
+        agents.ensureCapacity(numNodes);
 
-            if (newNeighbour.getNeighbours().size() == newNeighbour.getIndividualConnectionLimit()) {
-                totalConnections -= newNeighbour.getIndividualConnectionLimit();
-            }
+        SplitMixRandom random = randomStreams.get(RandomStreams.SETUP_EPOCH, RandomStreams.NO_AGENT,
+                RandomStreams.AGENT_SETUP);
 
+        for (int i = 0; i < numNodes; i++) {
+            randomStreams.select(random, RandomStreams.SETUP_EPOCH, nextFreeID, RandomStreams.AGENT_SETUP);
+            nodes.add(new Node(agents, nextFreeID++, random));
         }
     }
 
     /**
-     * Finds nodes with 1 neighbour (dead ends) and connects them together
+     * Places the nodes with the initial layout, if that has not happened yet, and lets the views know. The layout walks
+     * the network, so this should be called while holding the physics lock; views do not lay out the nodes themselves,
+     * but wait for this to happen.
      */
-    private void createLoops() {
-        ArrayList<Node> onlyOneConnection = new ArrayList<>();
-
-        for (Node n : nodes) {
-            if (n.getNeighbours().size() == 1 && n.getIndividualConnectionLimit() > 1) {
-                onlyOneConnection.add(n);
-            }
+    public void ensureLaidOut() {
+        if (!agents.physics.isLaidOut()) {
+            agents.physics.ensureLaidOut();
+            pcs.firePropertyChange(new PropertyChangeEvent(this, "physicsUpdate", null, null));
         }
+    }
+
+    /**
+     * Connects the agents with the network generator. The generator draws from the network setup stream of the seed of
+     * the run, so the network follows from the seed that the run was started with.
+     */
+    protected void setupNetworkStructure() {
+        stepCount = 0;
+        SplitMixRandom random = randomStreams.get(RandomStreams.SETUP_EPOCH, RandomStreams.NO_AGENT,
+                RandomStreams.NETWORK_SETUP);
 
-        while (onlyOneConnection.size() >= 2) {
-            Node firstToConnect = onlyOneConnection.get(random.nextInt(onlyOneConnection.size()));
-            Node secondToConnect;
+        reserveConnections();
+        networkGenerator.generate(agents, random);
+        // The nodes are laid out from the network once their positions are first needed
+        agents.physics.discardLayout();
 
-            do {
-                secondToConnect = onlyOneConnection.get(random.nextInt(onlyOneConnection.size()));
-            } while (firstToConnect == secondToConnect);
+        pcs.firePropertyChange(new PropertyChangeEvent(this, "modelChange", null, null));
+    }
 
-            firstToConnect.addNeighbour(secondToConnect);
+    /**
+     * Reserves room in the adjacency structure for every node to reach its connection limit.
+     */
+    protected void reserveConnections() {
+        Adjacency network = agents.getNetwork();
 
-            onlyOneConnection.remove(firstToConnect);
-            onlyOneConnection.remove(secondToConnect);
+        for (Node n : nodes) {
+            network.reserve(n.getId(), n.getIndividualConnectionLimit());
         }
     }
 
     /**
-     * Sets the x, y coordinates of all nodes in an initial configuration.
+     * Sets the x, y coordinates of all nodes in an initial configuration. This is the initial layout of the physics
+     * store, which runs when the positions are first needed.
+     * <p>
+     * Starting at the first node, every node places its neighbours around itself, breadth first. A node is placed
+     * once, by the first neighbour to reach it.
      */
     private void nodeSpacingSetup() {
+        if (nodes.isEmpty()) {
+            return;
+        }
 
         nodes.get(0).setPosition(400, 400);
 
-        ArrayList<Node> processedNodes = new ArrayList<>();
-        Queue<Node> nodesToProcess = new LinkedList<>();
+        boolean[] placed = new boolean[nodes.size()];
+        Queue<Node> nodesToProcess = new ArrayDeque<>();
 
+        placed[nodes.get(0).getId()] = true;
         nodesToProcess.add(nodes.get(0));
 
         double linkDistance = 150;
+        SplitMixRandom random = randomStreams.get(RandomStreams.SETUP_EPOCH, RandomStreams.NO_AGENT,
+                RandomStreams.LAYOUT);
 
         while (!nodesToProcess.isEmpty()) {
             Node currentNode = nodesToProcess.remove();
@@ -186,7 +313,7 @@ public class GraphPhysicsModel {
             double currentX = currentNode.getX();
             double currentY = currentNode.getY();
 
-            ArrayList<Node> neighbours = currentNode.getNeighbours();
+            List<Node> neighbours = currentNode.getNeighbours();
 
             double angle = (2 * Math.PI) / neighbours.size();
 
@@ -194,7 +321,7 @@ public class GraphPhysicsModel {
 
                 Node currentNeighbour = neighbours.get(i);
 
-                if (processedNodes.contains(currentNeighbour)) {
+                if (placed[currentNeighbour.getId()]) {
                     continue;
                 }
 
@@ -202,10 +329,9 @@ public class GraphPhysicsModel {
                 double desiredYPos = currentY + linkDistance * Math.sin(angle * i) + (random.nextFloat() * 10);
 
                 currentNeighbour.setPosition(desiredXPos, desiredYPos);
+                placed[currentNeighbour.getId()] = true;
                 nodesToProcess.add(currentNeighbour);
             }
-
-            processedNodes.add(currentNode);
         }
 
         findPositionForUnlinkedNodes();
@@ -215,6 +341,9 @@ public class GraphPhysicsModel {
     /**
      * Places all nodes that have not been assigned with an initial position by nodeSpacingSetup
      * in such a manner that the physics doesn't go haywire
+     * <p>
+     * The nodes are placed on a spiral, skipping points that are taken by a node. Placed nodes are kept in a NodeGrid,
+     * so a point is checked without looking at every node.
      */
 
     private void findPositionForUnlinkedNodes() {
@@ -224,18 +353,25 @@ public class GraphPhysicsModel {
         int x = 0;
         int y = 0;
 
+        NodeGrid placedNodes = new NodeGrid(nodes.size(), nodes.get(0).getSize());
         for (Node n : nodes) {
-            Vector2D pos = n.getPosition();
+            if (n.getX() != 0 || n.getY() != 0) {
+                placedNodes.add(n);
+            }
+        }
 
-            if (pos.getX() == 0 && pos.getY() == 0) {
+        for (Node n : nodes) {
+            if (n.getX() == 0 && n.getY() == 0) {
 
-                while (getNodeOnPoint(x, y) != null) {
+                // The first point is always taken: by this node itself in the origin, or by the node placed last
+                do {
                     spiralPosition += spiralStepSize;
                     x = (int) (0.25 * spiralPosition * Math.cos(spiralPosition));
                     y = (int) (0.25 * spiralPosition * Math.sin(spiralPosition));
-                }
+                } while (placedNodes.getNodeOnPoint(x, y) != null);
 
                 n.setPosition(x, y);
+                placedNodes.add(n);
                 spiralPosition += spiralStepSize;
             }
         }
@@ -243,81 +379,35 @@ public class GraphPhysicsModel {
 
 
     /**
-     * Applies the push force to the given node of its surrounding nodes. Each node pushes on all others nearby,
-     * to force nodes that are not connected with a link to space out themselves.
+     * Pulls every node towards its neighbours, or pushes it away when they are closer than the spring length, and
+     * pulls it towards the center. Every force is added to the acceleration of the node directly, with a single
+     * square root for its direction.
      *
-     * @param nodeIdx The index of the node to which  the push force is applied
+     * @param physics the physics state of the nodes
+     * @param network the connections between the nodes
+     * @param from    the index of the first node to apply the forces to
+     * @param to      the index after the last node to apply the forces to
+     * @param random  the generator used to pick a direction for nodes on the exact same spot
      */
-    private void applyPushForce(int nodeIdx) {
-        Node currentNode = nodes.get(nodeIdx);
-
-        ArrayList<Node> tooClose = new ArrayList<>();
-
-        for (int j = 0; j < nodes.size(); j++) {
-            if (nodeIdx == j) {
-                continue;
-            }
-
-            Node otherNode = nodes.get(j);
-            if (currentNode.getDistance(otherNode) < PUSH_RANGE) {
-                tooClose.add(otherNode);
+    private void applySpringForcesAndGravity(PhysicsStore physics, Adjacency network, int from, int to,
+                                             Random random) {
+        double[] x = physics.x;
+        double[] y = physics.y;
+
+        for (int i = from; i < to; i++) {
+            for (int k = 0; k < network.getDegree(i); k++) {
+                int j = network.get(i, k);
+                double dx = x[i] - x[j];
+                double dy = y[i] - y[j];
+                double distance = Math.sqrt(dx * dx + dy * dy);
+
+                physics.accelerate(i, dx, dy, distance, SPRING_CONSTANT * (SPRING_LENGTH - distance), random);
             }
-        }
-
-        for (Node n : tooClose) {
-            double actualDistance = currentNode.getDistance(n);
-            double pushForce = PUSH_CONSTANT * (PUSH_RANGE - actualDistance);
-            Vector2D v = new Vector2D(n.getPosition(), currentNode.getPosition());
-            v.setToUnitVector();
-            v.multiplyWith(pushForce);
-
-            currentNode.addAcceleration(v);
-        }
-    }
-
-    private void applySpringForce(int nodeIdx) {
-        Node currentNode = nodes.get(nodeIdx);
-
-        for (Node n : currentNode.getNeighbours()) {
-
-            double actualDistance = currentNode.getDistance(n);
-            double forceExperienced = SPRING_CONSTANT * (SPRING_LENGTH - actualDistance);
-
-            Vector2D v = new Vector2D(n.getPosition(), currentNode.getPosition());
-
-            v.setToUnitVector();
-            v.multiplyWith(forceExperienced);
-            currentNode.addAcceleration(v);
-
-        }
-    }
-
-    private void applyGravity() {
-        for (Node n : nodes) {
-            Vector2D v = new Vector2D(n.getPosition(), CENTER);
-            v.setToUnitVector();
-            v.multiplyWith(centerForce);
-            n.addAcceleration(v);
-        }
-    }
-
-    /**
-     * Transfers all accelerations to velocities, and returns average velocity at this step
-     *
-     * @return the average velocity
-     */
-    private double transferForces() {
-
-        double avgVelocity = 0.0f;
-
-        for (Node n : nodes) {
-            n.dampen();
-            n.transferForce();
 
-            avgVelocity += n.getVelocity().getLength();
+            double dx = CENTER.getX() - x[i];
+            double dy = CENTER.getY() - y[i];
+            physics.accelerate(i, dx, dy, Math.sqrt(dx * dx + dy * dy), centerForce, random);
         }
-
-        return avgVelocity / nodes.size();
     }
 
     /**
@@ -329,6 +419,10 @@ public class GraphPhysicsModel {
      */
 
     public Node getNodeOnPoint(double x, double y) {
+        if (!agents.physics.isLaidOut()) {
+            return null;
+        }
+
         for (Node n : nodes) {
             if (n.pointInNode(x, y)) {
                 return n;
@@ -342,6 +436,28 @@ public class GraphPhysicsModel {
         return nodes;
     }
 
+    public AgentStore getAgents() {
+        return agents;
+    }
+
+    /**
+     * @return whether or not the nodes have been placed, and their positions can be drawn
+     */
+    public boolean isLaidOut() {
+        return agents.physics.isLaidOut();
+    }
+
+    public RandomStreams getRandomStreams() {
+        return randomStreams;
+    }
+
+    /**
+     * @return the seed of the current run, from which every random draw of the simulation follows
+     */
+    public long getSeed() {
+        return randomStreams.getSeed();
+    }
+
     public Node getNodeOnPoint(Vector2D pos) {
         return getNodeOnPoint(pos.getX(), pos.getY());
     }
@@ -350,8 +466,74 @@ public class GraphPhysicsModel {
         return centerForce;
     }
 
+    /**
+     * Changes the pull towards the center, which wakes all nodes
+     *
+     * @param centerForce the force of the pull
+     */
     public void setCenterForce(double centerForce) {
         this.centerForce = centerForce;
+        agents.physics.wakeAll();
+    }
+
+    public PushForceEngine getPushForceEngine() {
+        return pushForceEngine;
+    }
+
+    /**
+     * Sets the engine that applies the push forces between nodes
+     *
+     * @param pushForceEngine the engine to use from now on
+     */
+    public void setPushForceEngine(PushForceEngine pushForceEngine) {
+        this.pushForceEngine = pushForceEngine;
+    }
+
+    public boolean isSleeping() {
+        return sleeping;
+    }
+
+    /**
+     * Turns the sleeping of resting nodes on or off. All nodes are woken, so none are left behind at rest.
+     *
+     * @param sleeping whether or not nodes that have been resting for a while are skipped by physics updates
+     */
+    public void setSleeping(boolean sleeping) {
+        this.sleeping = sleeping;
+        agents.physics.wakeAll();
+    }
+
+    public NetworkGenerator getNetworkGenerator() {
+        return networkGenerator;
+    }
+
+    /**
+     * Sets the generator that connects the agents when the network is set up, from the next setup on
+     *
+     * @param networkGenerator the generator to use from now on
+     */
+    public void setNetworkGenerator(NetworkGenerator networkGenerator) {
+        this.networkGenerator = networkGenerator;
+    }
+
+    public int getPhysicsThreads() {
+        return physicsPool.getThreads();
+    }
+
+    /**
+     * Changes the number of threads a physics step is spread over
+     *
+     * @param threads the number of threads to use from now on, at least 1
+     */
+    public void setPhysicsThreads(int threads) {
+        physicsPool = new PhysicsPool(workers, threads);
+    }
+
+    /**
+     * @return the executor the workers of this model run on, which engines for this model should use as well
+     */
+    public ExecutorService getWorkers() {
+        return workers;
     }
 
     //Functions for propertyChangeListeners / support
@@ -9,6 +9,7 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * This class is responsible for generating image output from the simulation to files
@@ -26,6 +27,7 @@ public class ImageCapture {
     private final int maxPhysicsSettleStepsBeforeCapture = 5000;
     private String outputFolder = null;
     private float maxAvgVelocityBeforeCapture = 10.0f;
+    private boolean multilevelSettling = true;
 
     /**
      * Sets up an image capture
@@ -103,19 +105,21 @@ public class ImageCapture {
     }
 
     /**
-     * Performs physics updates until either the average velocity of all nodes is under a threshold, or until
-     * the maximum time to let the network settle has passed.
+     * Performs physics updates until either the average velocity of all nodes is at most maxAvgVelocityBeforeCapture,
+     * or until the maximum time to let the network settle has passed. In multilevel mode, coarsened versions of the
+     * network are laid out first, so that only a few steps on the full network are needed.
      */
     private void letPhysicsSettle() {
         manager.setPhysics(false);  // disable physics updating from main
-        double avgVelocity;
 
-        int physicsSteps = 0;
+        ReentrantLock physicsLock = manager.getPhysicsLock();
 
-        do {
-            avgVelocity = model.physicsUpdate();
-            physicsSteps++;
-        } while (avgVelocity > 10.0f && physicsSteps < maxPhysicsSettleStepsBeforeCapture);
+        try {
+            physicsLock.lock();
+            model.settle(maxAvgVelocityBeforeCapture, maxPhysicsSettleStepsBeforeCapture, multilevelSettling);
+        } finally {
+            physicsLock.unlock();
+        }
     }
 
     /**
@@ -189,4 +193,12 @@ public class ImageCapture {
     public void setMaxAvgVelocityBeforeCapture(float maxAvgVelocityBeforeCapture) {
         this.maxAvgVelocityBeforeCapture = maxAvgVelocityBeforeCapture;
     }
+
+    public boolean isMultilevelSettling() {
+        return multilevelSettling;
+    }
+
+    public void setMultilevelSettling(boolean multilevelSettling) {
+        this.multilevelSettling = multilevelSettling;
+    }
 }
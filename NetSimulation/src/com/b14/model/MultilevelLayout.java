@@ -0,0 +1,221 @@
+package com.b14.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A hierarchy of ever coarser versions of the network, used to let the layout settle in a few steps.
+ * <p>
+ * Every level is made from the one below by matching nodes with an unmatched neighbour, preferring the neighbour
+ * with the fewest connections. Nodes that find no unmatched neighbour join the cluster of a matched neighbour, which
+ * also shrinks networks where matching does not, such as stars. Clusters that share a connection are connected on the
+ * coarser level. Coarsening stops once a level is small, or no longer shrinks much.
+ * <p>
+ * A coarse node starts at the center of the nodes it stands for, so the layout warm-starts from the current
+ * positions. After the coarse level has been laid out, every node of the level below is moved by the displacement of
+ * its coarse node, which keeps the shape of the clusters and places them where the coarse layout put them.
+ */
+
+final class MultilevelLayout {
+
+    private static final int MIN_NODES = 32;       // levels this small are not coarsened further
+    private static final double MIN_SHRINK = 0.8;  // a level has to be at most this fraction of the one below
+    private static final int MAX_LEVELS = 32;
+
+    static final int MAX_STEPS_PER_LEVEL = 100;     // coarse levels only give a starting point, they need not settle
+
+    private final ArrayList<Adjacency> networks = new ArrayList<>();
+    private final ArrayList<PhysicsStore> stores = new ArrayList<>();
+    private final ArrayList<int[]> clusters = new ArrayList<>(); // for every level above 0, the cluster of each node
+    private final ArrayList<Integer> sizes = new ArrayList<>();
+
+    /**
+     * Builds the hierarchy over a network, with the positions of its nodes as the starting point of every level
+     *
+     * @param network  the network of the model, which is only read
+     * @param physics  the physics state of the model, which is level 0
+     * @param numNodes the number of nodes in the model
+     */
+    MultilevelLayout(Adjacency network, PhysicsStore physics, int numNodes) {
+        networks.add(network);
+        stores.add(physics);
+        clusters.add(null);
+        sizes.add(numNodes);
+
+        while (getNumLevels() < MAX_LEVELS && numNodes > MIN_NODES) {
+            int[] cluster = new int[numNodes];
+            int numClusters = findClusters(network, numNodes, cluster);
+
+            if (numClusters > MIN_SHRINK * numNodes) {
+                break;
+            }
+
+            network = connectClusters(network, numNodes, cluster, numClusters);
+            physics = placeClusters(physics, numNodes, cluster, numClusters);
+            numNodes = numClusters;
+
+            networks.add(network);
+            stores.add(physics);
+            clusters.add(cluster);
+            sizes.add(numNodes);
+        }
+    }
+
+    /**
+     * Moves every node of the level below by the displacement its cluster has had on the given level since the
+     * hierarchy was built. The nodes are put at rest, as their velocities belong to their previous positions.
+     *
+     * @param level the level whose layout is passed on, at least 1
+     */
+    void prolong(int level) {
+        PhysicsStore coarse = stores.get(level);
+        PhysicsStore fine = stores.get(level - 1);
+        int[] cluster = clusters.get(level);
+        int numClusters = sizes.get(level);
+
+        // The start positions of the clusters are recomputed, as centers of the nodes below
+        double[] startX = new double[numClusters];
+        double[] startY = new double[numClusters];
+        int[] count = new int[numClusters];
+        for (int i = 0; i < sizes.get(level - 1); i++) {
+            startX[cluster[i]] += fine.x[i];
+            startY[cluster[i]] += fine.y[i];
+            ++count[cluster[i]];
+        }
+
+        for (int i = 0; i < sizes.get(level - 1); i++) {
+            int c = cluster[i];
+            fine.x[i] += coarse.x[c] - startX[c] / count[c];
+            fine.y[i] += coarse.y[c] - startY[c] / count[c];
+            fine.velocityX[i] = 0;
+            fine.velocityY[i] = 0;
+        }
+    }
+
+    /**
+     * Matches nodes with a neighbour, and adds the nodes that remain to the cluster of a neighbour.
+     *
+     * @return the number of clusters
+     */
+    private static int findClusters(Adjacency network, int numNodes, int[] cluster) {
+        Arrays.fill(cluster, -1);
+        int numClusters = 0;
+
+        for (int i = 0; i < numNodes; i++) {
+            if (cluster[i] >= 0) {
+                continue;
+            }
+
+            int match = -1;
+            for (int k = 0; k < network.getDegree(i); k++) {
+                int j = network.get(i, k);
+                if (j != i && cluster[j] < 0 && (match < 0 || network.getDegree(j) < network.getDegree(match))) {
+                    match = j;
+                }
+            }
+
+            if (match >= 0) {
+                cluster[i] = numClusters;
+                cluster[match] = numClusters++;
+            }
+        }
+
+        for (int i = 0; i < numNodes; i++) {
+            if (cluster[i] >= 0) {
+                continue;
+            }
+
+            // All neighbours are matched by now, as an unmatched one would have been matched with this node
+            cluster[i] = (network.getDegree(i) > 0) ? cluster[network.get(i, 0)] : numClusters++;
+        }
+
+        return numClusters;
+    }
+
+    /**
+     * Builds the network between clusters, in which two clusters are connected if any of their nodes are.
+     */
+    private static Adjacency connectClusters(Adjacency network, int numNodes, int[] cluster, int numClusters) {
+        // Group the nodes by cluster
+        int[] start = new int[numClusters + 1];
+        for (int i = 0; i < numNodes; i++) {
+            ++start[cluster[i] + 1];
+        }
+        for (int c = 0; c < numClusters; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] members = new int[numNodes];
+        int[] next = Arrays.copyOf(start, numClusters);
+        for (int i = 0; i < numNodes; i++) {
+            members[next[cluster[i]]++] = i;
+        }
+
+        Adjacency coarse = new Adjacency();
+        coarse.ensureRows(numClusters);
+        int[] lastSeen = new int[numClusters]; // marks the clusters connected to the current one
+        Arrays.fill(lastSeen, -1);
+
+        for (int c = 0; c < numClusters; c++) {
+            int degree = 0;
+            for (int m = start[c]; m < start[c + 1]; m++) {
+                degree += network.getDegree(members[m]);
+            }
+            coarse.reserve(c, degree);
+
+            for (int m = start[c]; m < start[c + 1]; m++) {
+                int i = members[m];
+                for (int k = 0; k < network.getDegree(i); k++) {
+                    int d = cluster[network.get(i, k)];
+                    if (d != c && lastSeen[d] != c) {
+                        lastSeen[d] = c;
+                        coarse.add(c, d);
+                    }
+                }
+            }
+        }
+
+        return coarse;
+    }
+
+    /**
+     * Places every cluster at the center of its nodes, at rest.
+     */
+    private static PhysicsStore placeClusters(PhysicsStore physics, int numNodes, int[] cluster, int numClusters) {
+        PhysicsStore coarse = new PhysicsStore();
+        coarse.ensureNodes(numClusters);
+        coarse.ensureLaidOut();
+        int[] count = new int[numClusters];
+
+        for (int i = 0; i < numNodes; i++) {
+            coarse.x[cluster[i]] += physics.x[i];
+            coarse.y[cluster[i]] += physics.y[i];
+            ++count[cluster[i]];
+        }
+        for (int c = 0; c < numClusters; c++) {
+            coarse.x[c] /= count[c];
+            coarse.y[c] /= count[c];
+        }
+
+        return coarse;
+    }
+
+    /*
+        Getters
+     */
+
+    int getNumLevels() {
+        return networks.size();
+    }
+
+    Adjacency getNetwork(int level) {
+        return networks.get(level);
+    }
+
+    PhysicsStore getPhysics(int level) {
+        return stores.get(level);
+    }
+
+    int getSize(int level) {
+        return sizes.get(level);
+    }
+}
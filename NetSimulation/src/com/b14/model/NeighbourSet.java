@@ -0,0 +1,195 @@
+package com.b14.model;
+
+import java.util.Arrays;
+
+/**
+ * A set of agent ids that answers whether an id is present in constant time. The Adjacency keeps one for every row
+ * with many neighbours, next to the row itself.
+ * <p>
+ * Ids are stored in an open-addressed hash table with linear probing. When the table would grow to more than one bit
+ * per agent in the model, as happens for hubs, the set switches to a bitset over all agent ids instead.
+ */
+
+final class NeighbourSet {
+
+    private static final int EMPTY = -1;
+    private static final int MIN_TABLE_SIZE = 16;
+
+    private int[] table; // hash table of ids, null once the set has switched to a bitset
+    private long[] bits; // bitset of ids, null as long as the hash table is used
+    private int size;
+
+    /**
+     * Creates a set holding the given ids, with room for the expected number of ids
+     *
+     * @param ids          the array holding the ids
+     * @param from         the position of the first id in the array
+     * @param to           the position after the last id in the array
+     * @param skip         a value in the array that is not an id, and is left out
+     * @param expectedSize the number of ids the set should hold without growing
+     * @param numAgents    the number of agents in the model, which bounds the size of a bitset
+     */
+    NeighbourSet(int[] ids, int from, int to, int skip, int expectedSize, int numAgents) {
+        int tableSize = MIN_TABLE_SIZE;
+        while (2 * expectedSize > tableSize && 64L * tableSize <= numAgents) {
+            tableSize *= 2;
+        }
+
+        if (2 * expectedSize > tableSize) {
+            bits = new long[(numAgents + Long.SIZE - 1) / Long.SIZE];
+        } else {
+            table = new int[tableSize];
+            Arrays.fill(table, EMPTY);
+        }
+
+        for (int i = from; i < to; i++) {
+            if (ids[i] != skip) {
+                add(ids[i], numAgents);
+            }
+        }
+    }
+
+    /**
+     * Adds an id to the set, if it is not present yet.
+     *
+     * @param id        the id to add
+     * @param numAgents the number of agents in the model, which bounds the size of a bitset
+     */
+    void add(int id, int numAgents) {
+        if (table == null) {
+            int word = id >>> 6;
+            if (word >= bits.length) {
+                bits = Arrays.copyOf(bits, Math.max(bits.length * 2, word + 1));
+            }
+            if ((bits[word] & (1L << id)) == 0) {
+                bits[word] |= 1L << id;
+                ++size;
+            }
+            return;
+        }
+
+        if (2 * (size + 1) > table.length) {
+            // A table of twice the size would take 64 bits per slot
+            if (64L * table.length > numAgents) {
+                toBitset(Math.max(numAgents, id + 1));
+                add(id, numAgents);
+                return;
+            }
+            rehash(table.length * 2);
+        }
+
+        int mask = table.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            if (table[slot] == id) {
+                return;
+            }
+            if (table[slot] == EMPTY) {
+                table[slot] = id;
+                ++size;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes an id from the set, if it is present.
+     *
+     * @param id the id to remove
+     */
+    void remove(int id) {
+        if (table == null) {
+            int word = id >>> 6;
+            if (word < bits.length && (bits[word] & (1L << id)) != 0) {
+                bits[word] &= ~(1L << id);
+                --size;
+            }
+            return;
+        }
+
+        int mask = table.length - 1;
+        int slot = hash(id) & mask;
+        while (table[slot] != id) {
+            if (table[slot] == EMPTY) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Shift later ids of the same probe sequence back, so that no lookup runs into the gap
+        int gap = slot;
+        for (int next = (gap + 1) & mask; table[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(table[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+        }
+        table[gap] = EMPTY;
+        --size;
+    }
+
+    /**
+     * @param id the id to look for
+     * @return whether or not the id is in the set
+     */
+    boolean contains(int id) {
+        if (table == null) {
+            int word = id >>> 6;
+            return word < bits.length && (bits[word] & (1L << id)) != 0;
+        }
+
+        int mask = table.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            if (table[slot] == id) {
+                return true;
+            }
+            if (table[slot] == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    private void rehash(int tableSize) {
+        int[] old = table;
+        table = new int[tableSize];
+        Arrays.fill(table, EMPTY);
+        size = 0;
+
+        for (int id : old) {
+            if (id != EMPTY) {
+                add(id, Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    private void toBitset(int numAgents) {
+        bits = new long[(numAgents + Long.SIZE - 1) / Long.SIZE];
+
+        for (int id : table) {
+            if (id != EMPTY) {
+                bits[id >>> 6] |= 1L << id;
+            }
+        }
+        table = null;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /*
+        Getters
+     */
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bytes held by the arrays of this set
+     */
+    long getMemoryFootprint() {
+        return (table != null) ? 4L * table.length : 8L * bits.length;
+    }
+}
@@ -1,96 +1,90 @@
 package com.b14.model;
 
 import java.awt.*;
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
 import java.util.Random;
 
 
 /**
- * The node in the network, aka the representation of a user
+ * The node in the network, aka the representation of a user.
+ * The state of the agent itself lives in the AgentStore; a node is a view on that store for a single agent id.
  */
 
 public class Node extends Physics2DObject {
 
-    // Sampling seed
-    private final static Random random = new Random(0);
-    private static final int windowSize = 30; // for contact history window
-    private static int connectionLimit = 50; // for now. If we want super spreaders or influencers we might want to go back to create limit for each object.
-    private static float dissonanceRatioWeight = 0.5f; // weightfor effect  of dissonance on openness
-    private static float opennessWeight = 0.1f; // maximum belief distance to consider with openness score of 1
-    private final ArrayList<Node> confidenceSet; // in theory only values would be possible as well.
-    private final float dissonanceDecay;
-    private final float dissonanceDecrease; // in case of a positive interaction
-    private final float dissonanceIncrease; // negative, in case of conflicting information (Not in use)
-    // Moving window of contact history
-    private final ArrayList<Integer> contactHistory;
+    private static final float dissonanceDecay = 0.5f;
+    private static final float dissonanceDecrease = -0.05f; // in case of a positive interaction
+    private static final float dissonanceIncrease = 0.3f; // negative, in case of conflicting information (Not in use)
     //Graphics
-    private final float size = 30.0f;
-    protected ArrayList<Node> neighbours;
-    protected int id;
-    // Tuning parameters
-    private float belief; // agent's belief at current time
-    private double currentDissonance = 0.0f;
-    private float dissonanceThreshold; // dissonance becomes unbearable, agent engages in drastic measures: pruning network
-    //personality traits
-    private float openness; // how far another belief can be away from your's before being rejected
-    private float neuroticism; // use neuroticism to inform resilience to dissonance
-    private float extraversion; // use extraversion to define benefit of positive encounter and network size
-    // original values for personality traits
-    private float openness_original; // to change openness in case weight is changed.
-    // Interaction statistics
-    private int numberOfContacts;
-    private int numberOfConflicts;
-
-
-    public Node(int id) {
-        this.id = id;
-        neighbours = new ArrayList<>();
-        contactHistory = new ArrayList<>();
-        belief = random.nextFloat();
-        openness = 0.05f + random.nextFloat() * 0.2f - 0.05f;
-        confidenceSet = new ArrayList<>();
-        dissonanceThreshold = random.nextFloat();
-        dissonanceDecay = 0.5f;
-        dissonanceDecrease = -0.05f;
-        dissonanceIncrease = 0.3f;
-        numberOfConflicts = 0;
-        numberOfContacts = 0;
-        extraversion = 1f; // penalty on network size for individual is inactive for purely simulated data
-        reset();
-    }
+    private static final float size = 30.0f;
+    // Ids of the agents whose message was accepted in the current epoch
+    private int[] confidenceSet = new int[8];
+    private int confidenceSetSize;
+    // View on the row of this agent in the adjacency structure of the store
+    private final List<Node> neighbours = new NeighbourList();
+    protected final int id;
+    // Belief, dissonance, personality traits and interaction statistics are stored here
+    private final AgentStore store;
 
-    public Node(int id, float neuroticism, float extraversion, float openness) {
-        this(id);
-        this.openness_original = openness;
-        this.openness = opennessWeight * openness;
-        this.dissonanceThreshold = 1f - neuroticism;
-        this.currentDissonance = random.nextFloat() * dissonanceThreshold;
-        this.extraversion = extraversion;
-    }
-
-    public static void setConnectionLimit(int connectionLimit) {
-        Node.connectionLimit = connectionLimit;
-    }
 
-    public static void setOpennessWeight(float opennessWeight) {
-        Node.opennessWeight = opennessWeight;
+    /**
+     * Creates a node with random traits
+     *
+     * @param store  the store the state of the agent is kept in
+     * @param id     the id of the agent
+     * @param random the generator the traits are drawn from
+     */
+    public Node(AgentStore store, int id, Random random) {
+        super(store.physics, id);
+        this.store = store;
+        this.id = store.add(this, id);
+        store.belief[id] = random.nextFloat(); // agent's belief at current time
+        store.openness[id] = 0.05f + random.nextFloat() * 0.2f - 0.05f; // how far another belief can be away from your's before being rejected
+        store.opennessOriginal[id] = 0f; // to change openness in case weight is changed.
+        store.dissonanceThreshold[id] = random.nextFloat(); // dissonance becomes unbearable, agent engages in drastic measures: pruning network
+        store.dissonance[id] = 0.0f;
+        store.numberOfConflicts[id] = 0;
+        store.numberOfContacts[id] = 0;
+        store.extraversion[id] = 1f; // penalty on network size for individual is inactive for purely simulated data
+        reset();
     }
 
-    public static void setDissonanceRatioWeight(float dissonanceRatioWeight) {
-        Node.dissonanceRatioWeight = dissonanceRatioWeight;
+    /**
+     * Creates a node with the given personality traits
+     *
+     * @param store        the store the state of the agent is kept in
+     * @param id           the id of the agent
+     * @param random       the generator the remaining traits are drawn from
+     * @param neuroticism  the neuroticism of the agent, which sets its resilience to dissonance
+     * @param extraversion the extraversion of the agent
+     * @param openness     the openness of the agent
+     */
+    public Node(AgentStore store, int id, Random random, float neuroticism, float extraversion, float openness) {
+        this(store, id, random);
+        store.opennessOriginal[id] = openness;
+        store.openness[id] = store.config.getOpennessWeight() * openness;
+        store.dissonanceThreshold[id] = 1f - neuroticism; // use neuroticism to inform resilience to dissonance
+        store.dissonance[id] = random.nextFloat() * store.dissonanceThreshold[id];
+        store.extraversion[id] = extraversion; // use extraversion to define benefit of positive encounter and network size
     }
 
     /**
      * Adds the passed in node as neighbour, if not already labelled as such
      * and number of existing neighbors is below the connection limit.
+     * Both nodes are woken, as the new spring moves them.
      *
      * @param node The neighbour to add.
      */
 
     public void addNeighbour(Node node) {
-        if ((!neighbours.contains(node)) && canTwoConnect(node)) {
-            neighbours.add(node);
-            node.getNeighbours().add(this);
+        if ((!store.network.contains(id, node.id)) && canTwoConnect(node)) {
+            store.network.add(id, node.id);
+            store.network.add(node.id, id);
+            store.physics.wake(id);
+            store.physics.wake(node.id);
         }
     }
 
@@ -102,20 +96,21 @@ public class Node extends Physics2DObject {
      */
 
     public boolean canTwoConnect(Node node) {
-        return ((neighbours.size() < getIndividualConnectionLimit()) &&
-                (node.getNeighbours().size() < node.getIndividualConnectionLimit()));
+        return ((store.network.getDegree(id) < getIndividualConnectionLimit()) &&
+                (store.network.getDegree(node.id) < node.getIndividualConnectionLimit()));
     }
 
     /**
-     * Removes the passed in node as neighbour
+     * Removes the passed in node as neighbour, which wakes both nodes
      *
      * @param neighbour The neighbour to remove
      */
 
     public void removeNeighbour(Node neighbour) {
-        if (neighbours.contains(neighbour)) {
-            neighbours.remove(neighbour);
-            neighbour.getNeighbours().remove(this);
+        if (store.network.remove(id, neighbour.id)) {
+            store.network.remove(neighbour.id, id);
+            store.physics.wake(id);
+            store.physics.wake(neighbour.id);
         }
     }
 
@@ -151,18 +146,12 @@ public class Node extends Physics2DObject {
     }*/
 
     public void updateContact(boolean conflict) {
-        ++numberOfContacts;
+        ++store.numberOfContacts[id];
 
         if (conflict) {
-            ++numberOfConflicts;
-            contactHistory.add(1);
-        } else {
-            contactHistory.add(0);
-        }
-
-        if (contactHistory.size() > windowSize) {
-            contactHistory.remove(0);
+            ++store.numberOfConflicts[id];
         }
+        store.contactWindows.record(id, conflict);
     }
 
     /**
@@ -170,101 +159,190 @@ public class Node extends Physics2DObject {
      */
 
     public void boostDissonance() {
-        currentDissonance += (extraversion * dissonanceDecrease);
-        currentDissonance = (currentDissonance < 0) ? 0f : currentDissonance;
+        double currentDissonance = store.dissonance[id] + (store.extraversion[id] * dissonanceDecrease);
+        store.dissonance[id] = (currentDissonance < 0) ? 0f : currentDissonance;
     }
 
     /**
      * Receive messages from all Neighbors, add those in reccomended, update belief and dissonance.
      *
      * @param recommended Set of recommended nodes chosen by algorithm implemented in GraphModel
+     * @param context     The context providing randomness, and deciding how network and belief changes are made
      */
 
-    public void receiveMessages(ArrayList<Node> recommended) {
-        ArrayList<Node> possibleConnections = new ArrayList<>(neighbours);
-        ArrayList<Node> causedConflict = new ArrayList<>();
-        possibleConnections.addAll(recommended);
+    public void receiveMessages(List<Node> recommended, SpreadContext context) {
+        int numRecommended = recommended.size();
+        int[] possibleConnections = context.getNeighbourBuffer(store.network.getDegree(id) + numRecommended);
+        int numPossible = store.network.copyNeighbours(id, possibleConnections, 0);
+        for (int i = 0; i < numRecommended; i++) {
+            possibleConnections[numPossible++] = recommended.get(i).id;
+        }
 
-        for (Node n : possibleConnections) {
-            if (Math.abs(n.belief - belief) < getWeightedOpenness()) {
-                confidenceSet.add(n);
-                addNeighbour(n); // update if other agent was in reccomended
+        int[] causedConflict = context.getCandidateBuffer(numPossible);
+        int numConflicts = 0;
+
+        // Sized for a full row and all recommendations, so the set grows once instead of a little in many epochs
+        if (confidenceSet.length < numPossible) {
+            confidenceSet = Arrays.copyOf(confidenceSet,
+                    Math.max(numPossible, store.network.getCapacity(id) + numRecommended));
+        }
+
+        float[] belief = store.belief;
+        float ownBelief = belief[id];
+
+        // Dissonance only changes after all messages have been received, so the openness holds for all of them
+        float weightedOpenness = getWeightedOpenness();
+        boolean overThreshold = store.dissonance[id] >= store.dissonanceThreshold[id];
+
+        for (int i = 0; i < numPossible; i++) {
+            int n = possibleConnections[i];
+            if (Math.abs(belief[n] - ownBelief) < weightedOpenness) {
+                addConfidant(n);
+                context.addNeighbour(this, store.getNode(n)); // update if other agent was in reccomended
                 updateContact(false);
                 //updateDissonance(false);
             } else {
                 updateContact(true);
                 //updateDissonance(true);
-                if (currentDissonance >= dissonanceThreshold) {
-                    causedConflict.add(n);
+                if (overThreshold) {
+                    causedConflict[numConflicts++] = n;
                 }
             }
         }
 
-        for (Node n : causedConflict) {
+        for (int i = 0; i < numConflicts; i++) {
+            int n = causedConflict[i];
 
-            float numDrawn = random.nextFloat();
+            float numDrawn = context.getRandom().nextFloat();
 
             numDrawn *= 0.99;   // As the max difference is 0.99. Min weighted openness is 0.01, so
                                 // max difference is being of belief 0, encountering a 1, with openness 0.01
 
-            float outsideAcceptableRange = Math.abs(n.belief - belief) - getWeightedOpenness();
+            float outsideAcceptableRange = Math.abs(belief[n] - ownBelief) - weightedOpenness;
 
             if (outsideAcceptableRange < numDrawn) {
-                removeNeighbour(n);
+                context.removeNeighbour(this, store.getNode(n));
                 boostDissonance(); // reduction strategy has minimal (still linear) immediate effect (currently).
+                weightedOpenness = getWeightedOpenness();
             }
         }
 
-        currentDissonance = (double) contactHistory.stream().mapToInt(i -> i).sum() / contactHistory.size();
-        updateBelief();
+        store.dissonance[id] = store.contactWindows.getConflictRatio(id);
+        updateBelief(context);
     }
 
     /**
      * Update belief of agent.
+     *
+     * @param context The context whose belief array receives the new belief
      */
 
-    public void updateBelief() {
-        float weight = 1.0f / (confidenceSet.size() + 1);
-        float nextBelief = weight * belief;
-        for (Node n : confidenceSet) {
-            nextBelief += weight * n.belief;
+    private void updateBelief(SpreadContext context) {
+        float[] belief = store.belief;
+        float weight = 1.0f / (confidenceSetSize + 1);
+        float nextBelief = weight * belief[id];
+        for (int i = 0; i < confidenceSetSize; i++) {
+            nextBelief += weight * belief[confidenceSet[i]];
         }
-        belief = nextBelief;
+        context.getBeliefsOut(store)[id] = nextBelief;
 
     }
 
+    private void addConfidant(int confidant) {
+        if (confidenceSetSize == confidenceSet.length) {
+            confidenceSet = Arrays.copyOf(confidenceSet, confidenceSetSize * 2);
+        }
+        confidenceSet[confidenceSetSize++] = confidant;
+    }
+
     /*
       Getters
      */
 
     /**
      * Basically fraternize by Max.
+     *
+     * @param context The context deciding how network changes are made
      */
 
-    public void fraternize() {
-        ArrayList<Node> possibleConnections = new ArrayList<>();
-        for (Node n : neighbours) {
-            for (Node n2 : n.getNeighbours()) {
-                if (n2 == this || n == n2) {
+    public void fraternize(SpreadContext context) {
+        Adjacency network = store.network;
+        float[] belief = store.belief;
+        float ownBelief = belief[id];
+
+        int[] friends = context.getNeighbourBuffer(network.getDegree(id));
+        int numFriends = network.copyNeighbours(id, friends, 0);
+
+        // Marks the agent, its friends and the candidates found so far, so that every candidate is only tried once
+        long[] visited = context.getVisitedMarkers(store.size());
+        mark(visited, id);
+        for (int i = 0; i < numFriends; i++) {
+            mark(visited, friends[i]);
+        }
+
+        int[] candidates = context.getCandidateBuffer(0);
+        int numCandidates = 0;
+
+        float weightedOpenness = getWeightedOpenness();
+        // Every friend of a friend within openness lowers the dissonance, and so widens the openness, until it is 0
+        boolean boosting = store.dissonance[id] != 0;
+
+        for (int i = 0; i < numFriends && (boosting || context.canConnect(this)); i++) {
+            int n = friends[i];
+            int[] friendsOfFriend = context.getRowBuffer(network.getDegree(n));
+            int numFriendsOfFriend = network.copyNeighbours(n, friendsOfFriend, 0);
+
+            for (int j = 0; j < numFriendsOfFriend; j++) {
+                int n2 = friendsOfFriend[j];
+                if (n2 == id || n == n2 || !(Math.abs(belief[n2] - ownBelief) < weightedOpenness)) {
                     continue;
                 }
-                if (Math.abs(n2.belief - belief) < getWeightedOpenness()) {
-                    possibleConnections.add(n2);
-                    /*
-                    If I hear what I want to hear that makes me feel
-                    good (initially only, mere exposure!!). This boost
-                    depends on agent's level of extraversion.
-                    */
+
+                if (!isMarked(visited, n2)) {
+                    mark(visited, n2);
+                    if (numCandidates == candidates.length) {
+                        candidates = context.getCandidateBuffer(numCandidates + 1);
+                    }
+                    candidates[numCandidates++] = n2;
+                    context.addNeighbour(this, store.getNode(n2));
+                }
+
+                /*
+                If I hear what I want to hear that makes me feel
+                good (initially only, mere exposure!!). This boost
+                depends on agent's level of extraversion.
+                */
+                if (boosting) {
                     boostDissonance();
+                    weightedOpenness = getWeightedOpenness();
+                    boosting = store.dissonance[id] != 0;
+                } else if (!context.canConnect(this)) {
+                    break;
                 }
             }
         }
 
-        for (Node n : possibleConnections) {
-            addNeighbour(n);
+        unmark(visited, id);
+        for (int i = 0; i < numFriends; i++) {
+            unmark(visited, friends[i]);
+        }
+        for (int i = 0; i < numCandidates; i++) {
+            unmark(visited, candidates[i]);
         }
     }
 
+    private static boolean isMarked(long[] markers, int agent) {
+        return (markers[agent >>> 6] & (1L << agent)) != 0;
+    }
+
+    private static void mark(long[] markers, int agent) {
+        markers[agent >>> 6] |= 1L << agent;
+    }
+
+    private static void unmark(long[] markers, int agent) {
+        markers[agent >>> 6] &= ~(1L << agent);
+    }
+
     /**
      * Returns whether or not a given position (in world coordinates) falls within a node
      *
@@ -278,11 +356,11 @@ public class Node extends Physics2DObject {
         //First we check if it is within the bounding box surrounding the sphere
         float radius = size / 2;
 
-        if (isInBetween(position.getX() - radius, position.getX() + radius, x) &&
-                isInBetween(position.getY() - radius, position.getY() + radius, y)) {
+        if (isInBetween(getX() - radius, getX() + radius, x) &&
+                isInBetween(getY() - radius, getY() + radius, y)) {
 
             //More expensive check to see if it is actually located in the right position
-            return Math.pow(x - position.getX(), 2) + Math.pow(y - position.getY(), 2) < radius * radius;
+            return Math.pow(x - getX(), 2) + Math.pow(y - getY(), 2) < radius * radius;
         }
         return false;
     }
@@ -298,6 +376,7 @@ public class Node extends Physics2DObject {
      * @return the color of the node
      */
     public Color getColorBelief(Color zeroBelief, Color oneBelief, boolean transparent) {
+        float belief = store.belief[id];
 
         float beliefDeviation = Math.abs(0.5f - belief) * 2;
 
@@ -341,35 +420,59 @@ public class Node extends Physics2DObject {
     }
 
     public void reset() {
-        confidenceSet.clear();
+        confidenceSetSize = 0;
     }
 
     public int getConnectionCount() {
-        return neighbours.size();
+        return store.network.getDegree(id);
     }
 
     public float getBelief() {
-        return belief;
+        return store.belief[id];
     }
 
     public double getCurrentDissonance() {
-        return currentDissonance;
+        return store.dissonance[id];
     }
 
     public float getDissonanceThreshold() {
-        return dissonanceThreshold;
+        return store.dissonanceThreshold[id];
     }
 
     public boolean isDissonanceOverThreshold() {
-        return (currentDissonance > dissonanceThreshold);
+        return (store.dissonance[id] > store.dissonanceThreshold[id]);
     }
 
-    public ArrayList<Node> getNeighbours() {
+    /**
+     * @return a read-only view on the neighbours of this node
+     */
+    public List<Node> getNeighbours() {
         return neighbours;
     }
 
-    public ArrayList<Node> getConfidenceSet() {
-        return confidenceSet;
+    public boolean isNeighbour(Node node) {
+        return store.network.contains(id, node.id);
+    }
+
+    public int getConfidenceSetSize() {
+        return confidenceSetSize;
+    }
+
+    /**
+     * @return the average belief of the agents whose message was accepted in the current epoch
+     */
+    public float getAvgConfidantBelief() {
+        float res = 0.0f;
+
+        if (confidenceSetSize == 0) {
+            return res;
+        }
+
+        for (int i = 0; i < confidenceSetSize; i++) {
+            res += store.belief[confidenceSet[i]];
+        }
+
+        return res / confidenceSetSize;
     }
 
     public int getId() {
@@ -381,17 +484,17 @@ public class Node extends Physics2DObject {
     }
 
     public boolean getCanConnect() {
-        return neighbours.size() < getIndividualConnectionLimit();
+        return store.network.getDegree(id) < getIndividualConnectionLimit();
     }
 
     public int getIndividualConnectionLimit() {
-        return (int) (extraversion * connectionLimit);
+        return (int) (store.extraversion[id] * store.config.getConnectionLimit());
     }
 
     public float getWeightedOpenness() {
-        double ratio = currentDissonance / dissonanceThreshold;
+        double ratio = store.dissonance[id] / store.dissonanceThreshold[id];
         ratio = (ratio > 1 ? 1 : ratio);
-        float weightedOpenness = openness - (float) (dissonanceRatioWeight * ratio);
+        float weightedOpenness = store.openness[id] - (float) (store.config.getDissonanceRatioWeight() * ratio);
         return (Math.max(weightedOpenness, 0.01f));
     }
 
@@ -400,19 +503,19 @@ public class Node extends Physics2DObject {
     }
 
     public float getOpenness() {
-        return openness;
+        return store.openness[id];
     }
 
     public float getExtraversion() {
-        return extraversion;
+        return store.extraversion[id];
     }
 
     public int getNumberOfContacts() {
-        return numberOfContacts;
+        return store.numberOfContacts[id];
     }
 
     public int getNumberOfConflicts() {
-        return numberOfConflicts;
+        return store.numberOfConflicts[id];
     }
 
     /**
@@ -420,21 +523,42 @@ public class Node extends Physics2DObject {
      */
 
     public void setDissonance(float value) {
-        currentDissonance += value;
+        store.dissonance[id] += value;
     }
 
     public void setReweightedOpenness() {
-        openness = opennessWeight * openness_original;
+        store.openness[id] = store.config.getOpennessWeight() * store.opennessOriginal[id];
     }
 
     @Override
     public String toString() {
         return "Node:                     " + id + "\n" +
-                "Current Belief:        " + belief + "\n" +
-                "Openness margin:  " + openness + "\n" +
-                "Current dis:            " + (float) currentDissonance + "\n" +
-                "Max. dis:                " + dissonanceThreshold + "\n" +
-                "Num. neighbours:  " + neighbours.size() + "/" + getIndividualConnectionLimit() + "\n" +
+                "Current Belief:        " + getBelief() + "\n" +
+                "Openness margin:  " + getOpenness() + "\n" +
+                "Current dis:            " + (float) getCurrentDissonance() + "\n" +
+                "Max. dis:                " + getDissonanceThreshold() + "\n" +
+                "Num. neighbours:  " + getConnectionCount() + "/" + getIndividualConnectionLimit() + "\n" +
                 "Num. conflicts: " + getNumberOfConflicts() + "\n";
     }
-}
\ No newline at end of file
+
+    /**
+     * Read-only list of the neighbours of this node, backed by the adjacency structure of the store
+     */
+    private class NeighbourList extends AbstractList<Node> implements RandomAccess {
+
+        @Override
+        public Node get(int index) {
+            return store.getNode(store.network.get(id, index));
+        }
+
+        @Override
+        public int size() {
+            return store.network.getDegree(id);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return (o instanceof Node) && isNeighbour((Node) o);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.b14.model;
+
+import java.util.Arrays;
+
+/**
+ * Finds the node on a point among a set of nodes that do not move, without looking at every node. The nodes are kept
+ * in a grid of cells as large as a node, so a node that covers a point has its center in the cell of the point or in
+ * one of the eight cells around it. The cells are hashed into buckets, whose nodes are chained through an array.
+ */
+
+final class NodeGrid {
+
+    private final double cellSize;
+    private final int mask;
+    private final int[] firstOfBucket;
+    private int[] nextInBucket;
+    private Node[] entries;
+    private int size;
+
+    /**
+     * Creates an empty grid
+     *
+     * @param capacity the number of nodes the grid is made for
+     * @param nodeSize the diameter of a node
+     */
+    NodeGrid(int capacity, double nodeSize) {
+        cellSize = nodeSize;
+        int numBuckets = SpatialHash.getNumBuckets(capacity);
+        mask = numBuckets - 1;
+        firstOfBucket = new int[numBuckets];
+        Arrays.fill(firstOfBucket, -1);
+        nextInBucket = new int[Math.max(1, capacity)];
+        entries = new Node[Math.max(1, capacity)];
+    }
+
+    /**
+     * Adds a node at its current position. The node should not move while it is in the grid.
+     *
+     * @param node the node to add
+     */
+    void add(Node node) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+            nextInBucket = Arrays.copyOf(nextInBucket, size * 2);
+        }
+
+        int bucket = SpatialHash.getBucket(node.getX(), node.getY(), cellSize, mask);
+        entries[size] = node;
+        nextInBucket[size] = firstOfBucket[bucket];
+        firstOfBucket[bucket] = size++;
+    }
+
+    /**
+     * Finds a node of the grid that is on the indicated coordinates.
+     *
+     * @param x The x (world) coordinate to check
+     * @param y The y (world) coordinate to check
+     * @return A node if there is one on point (x, y), and NULL otherwise
+     */
+    Node getNodeOnPoint(double x, double y) {
+        int cellX = SpatialHash.getCell(x, cellSize);
+        int cellY = SpatialHash.getCell(y, cellSize);
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                int bucket = SpatialHash.getBucket(cellX + dx, cellY + dy, mask);
+
+                for (int k = firstOfBucket[bucket]; k >= 0; k = nextInBucket[k]) {
+                    if (entries[k].pointInNode(x, y)) {
+                        return entries[k];
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -1,23 +1,26 @@
 package com.b14.model;
 
 /**
- * This class is responsible for performing physics updates of a 2d object
+ * This class is responsible for performing physics updates of a 2d object. Its state is kept in a PhysicsStore, of
+ * which this object is a view for a single index. Changing the state lays out the store first, if that has not
+ * happened yet. Reading it does not, as the view reads without holding the physics lock: until the store is laid out,
+ * the position, velocity and acceleration read as 0.
  */
 
 public class Physics2DObject {
 
-    private static final double FRICTION = 0.9;
+    protected final PhysicsStore physics;
+    protected final int index;
 
-    protected Vector2D position;
-    protected Vector2D acceleration;
-    protected Vector2D velocity;
-
-    protected double mass = 1.0;
-
-    public Physics2DObject() {
-        position = new Vector2D(0, 0);
-        acceleration = new Vector2D(0, 0);
-        velocity = new Vector2D(0, 0);
+    /**
+     * Creates a view on the physics state at the given index of a store
+     *
+     * @param physics the store the state is kept in
+     * @param index   the index of the state of this object in the store
+     */
+    public Physics2DObject(PhysicsStore physics, int index) {
+        this.physics = physics;
+        this.index = index;
     }
 
     /**
@@ -27,28 +30,34 @@ public class Physics2DObject {
      * @return the distance between the two Physics2DObjects
      */
     public double getDistance(Physics2DObject other) {
-        return Math.sqrt(Math.pow((position.getX() - other.getX()), 2) + Math.pow((position.getY() - other.getY()), 2));
+        double dx = getX() - other.getX();
+        double dy = getY() - other.getY();
+        return Math.sqrt(dx * dx + dy * dy);
     }
 
 
     /**
-     * Displaces this object by the provided vector
+     * Displaces this object by the provided vector. Like every move by hand, this wakes the object.
      *
      * @param displacement vector indicating displacement
      */
     public void moveBy(Vector2D displacement) {
-        position.setX(displacement.getX() + position.getX());
-        position.setY(displacement.getY() + position.getY());
+        physics.ensureLaidOut();
+        physics.x[index] += displacement.getX();
+        physics.y[index] += displacement.getY();
+        physics.wake(index);
     }
 
     /**
      * Adds the acceleration to the speed.
      */
     public void transferForce() {
+        physics.ensureLaidOut();
+        physics.velocityX[index] += physics.accelerationX[index] / PhysicsStore.MASS;
+        physics.velocityY[index] += physics.accelerationY[index] / PhysicsStore.MASS;
 
-        velocity.add(acceleration.getX() / mass, acceleration.getY() / mass);
-
-        moveBy(velocity);
+        physics.x[index] += physics.velocityX[index];
+        physics.y[index] += physics.velocityY[index];
 
         setAcceleration(0, 0);
     }
@@ -60,7 +69,9 @@ public class Physics2DObject {
      * @param y acceleration in the y-axis
      */
     public void addAcceleration(double x, double y) {
-        acceleration.add(x, y);
+        physics.ensureLaidOut();
+        physics.accelerationX[index] += x;
+        physics.accelerationY[index] += y;
     }
 
     /**
@@ -69,63 +80,86 @@ public class Physics2DObject {
      * @param other the vector whose velocity gets applied to this one
      */
     public void addAcceleration(Vector2D other) {
-        acceleration.add(other);
+        addAcceleration(other.getX(), other.getY());
     }
 
     /**
      * Applies friction to the velocity
      */
     public void dampen() {
-        velocity.setX(velocity.getX() * Physics2DObject.FRICTION);
-        velocity.setY(velocity.getY() * Physics2DObject.FRICTION);
-
+        physics.ensureLaidOut();
+        physics.velocityX[index] *= PhysicsStore.FRICTION;
+        physics.velocityY[index] *= PhysicsStore.FRICTION;
     }
 
     // Getters, setters
 
     public void setPosition(double x, double y) {
-        position.setX(x);
-        position.setY(y);
+        physics.ensureLaidOut();
+        physics.x[index] = x;
+        physics.y[index] = y;
+        physics.wake(index);
     }
 
     public void setAcceleration(double x, double y) {
-        acceleration.set(x, y);
+        physics.ensureLaidOut();
+        physics.accelerationX[index] = x;
+        physics.accelerationY[index] = y;
     }
 
     public double getX() {
-        return position.getX();
+        return physics.isLaidOut() ? physics.x[index] : 0;
     }
 
     public void setX(double x) {
-        position.setX(x);
+        physics.ensureLaidOut();
+        physics.x[index] = x;
+        physics.wake(index);
     }
 
     public double getY() {
-        return position.getY();
+        return physics.isLaidOut() ? physics.y[index] : 0;
     }
 
     public void setY(double y) {
-        position.setY(y);
+        physics.ensureLaidOut();
+        physics.y[index] = y;
+        physics.wake(index);
     }
 
+    /**
+     * @return a copy of the current position, which does not follow later moves
+     */
     public Vector2D getPosition() {
-        return position;
+        return new Vector2D(getX(), getY());
     }
 
     public void setPosition(Vector2D newPosition) {
-        position = newPosition;
+        setPosition(newPosition.getX(), newPosition.getY());
     }
 
+    /**
+     * @return a copy of the current acceleration
+     */
     public Vector2D getAcceleration() {
-        return acceleration;
+        if (!physics.isLaidOut()) {
+            return new Vector2D(0, 0);
+        }
+        return new Vector2D(physics.accelerationX[index], physics.accelerationY[index]);
     }
 
+    /**
+     * @return a copy of the current velocity
+     */
     public Vector2D getVelocity() {
-        return velocity;
+        if (!physics.isLaidOut()) {
+            return new Vector2D(0, 0);
+        }
+        return new Vector2D(physics.velocityX[index], physics.velocityY[index]);
     }
 
     public double getMass() {
-        return mass;
+        return PhysicsStore.MASS;
     }
 
 
@@ -0,0 +1,68 @@
+package com.b14.model;
+
+import java.util.Arrays;
+
+/**
+ * Holds what a single thread uses while it applies the forces on a range of nodes during a physics step: the random
+ * generator that picks a direction for nodes on the exact same spot, and scratch buffers that are reused from step to
+ * step. A context must only be used by one thread at a time.
+ */
+
+public class PhysicsContext {
+
+    private final SplitMixRandom random;
+    private int[] candidateBuffer = new int[64];
+    private int[] cellBuffer = new int[64];
+    private final double[][] doubleBuffers = {new double[64], new double[64], new double[64]};
+
+    /**
+     * Creates a context
+     *
+     * @param random the generator to draw from, which is moved to the right stream before every range of nodes
+     */
+    public PhysicsContext(SplitMixRandom random) {
+        this.random = random;
+    }
+
+    /*
+        Getters
+     */
+
+    public SplitMixRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * @param capacity the number of node indices that should fit
+     * @return a scratch array for the indices of nodes, which keeps its contents when it grows
+     */
+    public int[] getCandidateBuffer(int capacity) {
+        if (capacity > candidateBuffer.length) {
+            candidateBuffer = Arrays.copyOf(candidateBuffer, Math.max(capacity, candidateBuffer.length * 2));
+        }
+        return candidateBuffer;
+    }
+
+    /**
+     * @param capacity the number of cell indices that should fit
+     * @return a scratch array for the indices of the cells of a spatial index
+     */
+    public int[] getCellBuffer(int capacity) {
+        if (capacity > cellBuffer.length) {
+            cellBuffer = new int[Math.max(capacity, cellBuffer.length * 2)];
+        }
+        return cellBuffer;
+    }
+
+    /**
+     * @param buffer   which of the three double buffers to return
+     * @param capacity the number of values that should fit
+     * @return a scratch array for values computed per candidate node
+     */
+    public double[] getDoubleBuffer(int buffer, int capacity) {
+        if (capacity > doubleBuffers[buffer].length) {
+            doubleBuffers[buffer] = new double[Math.max(capacity, doubleBuffers[buffer].length * 2)];
+        }
+        return doubleBuffers[buffer];
+    }
+}
@@ -0,0 +1,84 @@
+package com.b14.model;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Spreads the nodes of a physics step over a number of workers, which run on an executor that may be shared with
+ * other models.
+ * <p>
+ * Nodes are split into chunks of a fixed size, independent of the number of threads, and workers take the next free
+ * chunk until none are left. Every worker has its own PhysicsContext, which belongs to this pool only. As long as a
+ * task only writes to the nodes of its own chunk, and draws from a random stream that is chosen by the chunk, the
+ * result of a step does not depend on the number of threads. The calling thread always takes part, and runs all
+ * chunks itself with a single thread, or when no thread of the executor is free (see WorkerThreads).
+ */
+
+public class PhysicsPool {
+
+    public static final int CHUNK_SIZE = 256;
+
+    private final int threads;
+    private final ArrayList<PhysicsContext> contexts = new ArrayList<>();
+    private final ExecutorService workers;
+
+    /**
+     * Creates a pool that runs its workers on the threads shared by all models
+     *
+     * @param threads the number of workers to use
+     */
+    public PhysicsPool(int threads) {
+        this(WorkerThreads.getShared(), threads);
+    }
+
+    /**
+     * Creates a pool that runs its workers on the given executor
+     *
+     * @param workers the executor to run the workers on, which is not shut down by the pool
+     * @param threads the number of workers to use
+     */
+    public PhysicsPool(ExecutorService workers, int threads) {
+        this.workers = workers;
+        this.threads = Math.max(1, threads);
+
+        for (int i = 0; i < this.threads; i++) {
+            contexts.add(new PhysicsContext(new SplitMixRandom(0)));
+        }
+    }
+
+    /**
+     * Runs the task for every chunk of nodes, and waits until all of them are done.
+     *
+     * @param numNodes the number of nodes to split into chunks
+     * @param task     the work to perform on a chunk
+     */
+    public void run(int numNodes, ChunkTask task) {
+        WorkerThreads.runChunks(workers, threads, getNumChunks(numNodes), (worker, chunk) -> {
+            int from = chunk * CHUNK_SIZE;
+            task.run(contexts.get(worker), from, Math.min(numNodes, from + CHUNK_SIZE));
+        });
+    }
+
+    /**
+     * @param numNodes the number of nodes
+     * @return the number of chunks the nodes are split into
+     */
+    public static int getNumChunks(int numNodes) {
+        return (numNodes + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /*
+        Getters
+     */
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * A piece of work performed on the nodes within a single chunk
+     */
+    public interface ChunkTask {
+        void run(PhysicsContext context, int from, int to);
+    }
+}
@@ -0,0 +1,382 @@
+package com.b14.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Holds the physics state of all nodes (position, velocity and acceleration) in primitive arrays, indexed by agent
+ * id. The physics kernels and push force engines work on these arrays directly, so a physics step does not follow a
+ * reference or allocate a vector for any force it applies. Nodes are views on this state through Physics2DObject.
+ * <p>
+ * Nodes that have moved less than SLEEP_SPEED for SLEEP_STEPS steps in a row fall asleep: they are put at rest, and
+ * a physics step with sleeping on skips them. A sleeping node wakes when it is moved by hand, when it gains or loses a
+ * connection, and when a node it is connected to, or one within its push range, moves faster than WAKE_SPEED. Once
+ * all nodes sleep, the store is at rest and a step has nothing to do.
+ * <p>
+ * The arrays are only allocated once the layout is first needed, by a physics update, a capture, or the main loop
+ * while the network is shown, so runs that never look at the layout do not pay for it. The nodes are then placed by
+ * the initial layout of the store. The initial layout walks the network, so it is only made while holding the physics
+ * lock; a view that reads the store before then finds it not laid out yet.
+ */
+
+public class PhysicsStore {
+
+    static final double MASS = 1.0;
+    static final double FRICTION = 0.9;
+    public static final double SLEEP_SPEED = 0.2;  // a fifth of a pixel per step
+    public static final double WAKE_SPEED = 1.0;   // slower nodes do not wake others, so drifting ones can rest
+    public static final int SLEEP_STEPS = 30;      // a second at the frame rate of the simulation
+
+    double[] x = new double[0];
+    double[] y = new double[0];
+    double[] velocityX = new double[0];
+    double[] velocityY = new double[0];
+    double[] accelerationX = new double[0];
+    double[] accelerationY = new double[0];
+    int[] restingSteps = new int[0]; // steps in a row the node moved less than SLEEP_SPEED
+
+    private int size;
+    private volatile boolean laidOut = false;
+    private Runnable initialLayout = null;
+    private boolean atRest = false;
+    private int[] movingNodes = new int[0];   // scratch space for waking the nodes around moving ones
+    private int[] cellOfMoving = new int[0];
+    private int[] sortedMoving = new int[0];  // moving nodes, grouped by the hash of their cell
+    private int[] cellStart = new int[1];     // range of the moving nodes of a hash in sortedMoving
+
+    /**
+     * Makes sure there is a node at rest in the origin for every id below the given number. Until the layout is needed,
+     * only the number of nodes is kept.
+     *
+     * @param numNodes the number of nodes that should have a physics state
+     */
+    public void ensureNodes(int numNodes) {
+        if (!laidOut) {
+            size = Math.max(size, numNodes);
+            return;
+        }
+
+        allocate(size, numNodes);
+        size = Math.max(size, numNodes);
+    }
+
+    /**
+     * Allocates the arrays and places the nodes with the initial layout, if this has not happened yet. Should be
+     * called before the arrays are used directly, while holding the physics lock; Physics2DObject does so for every
+     * change to the state of a node.
+     */
+    public void ensureLaidOut() {
+        if (!laidOut) {
+            layOut();
+        }
+    }
+
+    private synchronized void layOut() {
+        if (laidOut) {
+            return;
+        }
+
+        allocate(0, size);
+        atRest = false;
+        // Set before the initial layout runs, as it places the nodes through this store
+        laidOut = true;
+
+        if (initialLayout != null) {
+            initialLayout.run();
+        }
+    }
+
+    /**
+     * Drops the layout, which is made again from the initial layout once it is needed. The arrays are kept to be
+     * reused.
+     */
+    public void discardLayout() {
+        laidOut = false;
+        atRest = false;
+    }
+
+    /**
+     * Makes room for the given number of nodes, and puts the nodes from the first index on at rest in the origin
+     */
+    private void allocate(int from, int numNodes) {
+        if (numNodes > x.length) {
+            int newLength = Math.max(x.length * 2, numNodes);
+            x = Arrays.copyOf(x, newLength);
+            y = Arrays.copyOf(y, newLength);
+            velocityX = Arrays.copyOf(velocityX, newLength);
+            velocityY = Arrays.copyOf(velocityY, newLength);
+            accelerationX = Arrays.copyOf(accelerationX, newLength);
+            accelerationY = Arrays.copyOf(accelerationY, newLength);
+            restingSteps = Arrays.copyOf(restingSteps, newLength);
+        }
+
+        if (numNodes > from) {
+            Arrays.fill(x, from, numNodes, 0);
+            Arrays.fill(y, from, numNodes, 0);
+            Arrays.fill(velocityX, from, numNodes, 0);
+            Arrays.fill(velocityY, from, numNodes, 0);
+            Arrays.fill(accelerationX, from, numNodes, 0);
+            Arrays.fill(accelerationY, from, numNodes, 0);
+            Arrays.fill(restingSteps, from, numNodes, 0);
+            atRest = false;
+        }
+    }
+
+    /**
+     * Removes the state of all nodes, and the layout. The arrays are kept to be reused.
+     */
+    public void clear() {
+        size = 0;
+        discardLayout();
+    }
+
+    /**
+     * Accelerates a node in a direction. The length of the direction is passed in, as the callers have computed it
+     * already to find the force.
+     *
+     * @param node       the index of the node to accelerate
+     * @param directionX the x-component of the direction, of any length
+     * @param directionY the y-component of the direction, of any length
+     * @param length     the length of the direction
+     * @param force      the acceleration to add along the direction
+     * @param random     the generator used to pick a direction when the given one has length 0, which is the case
+     *                   for two nodes on the exact same spot
+     */
+    public void accelerate(int node, double directionX, double directionY, double length, double force,
+                           Random random) {
+        if (length == 0) {
+            directionX = random.nextFloat();
+            directionY = Math.sqrt(1 - directionX * directionX);
+            length = 1;
+        }
+
+        double scale = force / length;
+        accelerationX[node] += directionX * scale;
+        accelerationY[node] += directionY * scale;
+    }
+
+    /**
+     * Adds to the acceleration of a node
+     *
+     * @param node the index of the node to accelerate
+     * @param x    the acceleration to add along the x-axis
+     * @param y    the acceleration to add along the y-axis
+     */
+    public void addAcceleration(int node, double x, double y) {
+        accelerationX[node] += x;
+        accelerationY[node] += y;
+    }
+
+    /**
+     * Adds the accelerations to the velocities after applying friction, moves every node by its velocity and resets
+     * the accelerations, for a range of nodes. Also counts the steps every node has been resting.
+     *
+     * @param from     the index of the first node to move
+     * @param to       the index after the last node to move
+     * @param sleeping whether or not sleeping nodes are skipped, and resting nodes put to sleep
+     * @return the sum of the speeds of the nodes after the step
+     */
+    public double integrate(int from, int to, boolean sleeping) {
+        double totalSpeed = 0;
+
+        for (int i = from; i < to; i++) {
+            if (sleeping && isAsleep(i)) {
+                continue;
+            }
+
+            double vx = velocityX[i] * FRICTION + accelerationX[i] / MASS;
+            double vy = velocityY[i] * FRICTION + accelerationY[i] / MASS;
+
+            velocityX[i] = vx;
+            velocityY[i] = vy;
+            x[i] += vx;
+            y[i] += vy;
+            accelerationX[i] = 0;
+            accelerationY[i] = 0;
+
+            double speed = Math.sqrt(vx * vx + vy * vy);
+            totalSpeed += speed;
+
+            if (speed >= SLEEP_SPEED) {
+                restingSteps[i] = 0;
+            } else if (restingSteps[i] < SLEEP_STEPS && ++restingSteps[i] == SLEEP_STEPS && sleeping) {
+                velocityX[i] = 0;
+                velocityY[i] = 0;
+            }
+        }
+
+        return totalSpeed;
+    }
+
+    /**
+     * Wakes the sleeping nodes around the nodes that moved faster than WAKE_SPEED in the last step: the nodes they are
+     * connected to, and the nodes within their push range. The moving nodes are sorted into cells as large as the
+     * push range, so every sleeping node only looks at those in its own cell and the eight cells around it. Finds out
+     * whether the store is at rest.
+     *
+     * @param network  the connections between the nodes
+     * @param numNodes the number of nodes
+     * @param range    the push range, which is used as the size of a cell
+     */
+    public void wakeAroundMovingNodes(Adjacency network, int numNodes, double range) {
+        if (movingNodes.length < numNodes) {
+            movingNodes = new int[numNodes];
+            cellOfMoving = new int[numNodes];
+            sortedMoving = new int[numNodes];
+        }
+
+        int numMoving = 0;
+        int numAsleep = 0;
+        for (int i = 0; i < numNodes; i++) {
+            if (isAsleep(i)) {
+                numAsleep++;
+            } else if (velocityX[i] * velocityX[i] + velocityY[i] * velocityY[i] >= WAKE_SPEED * WAKE_SPEED) {
+                movingNodes[numMoving++] = i;
+            }
+        }
+
+        atRest = numAsleep == numNodes;
+        if (numMoving == 0 || numAsleep == 0) {
+            return;
+        }
+
+        for (int m = 0; m < numMoving; m++) {
+            int i = movingNodes[m];
+            for (int k = 0; k < network.getDegree(i); k++) {
+                wake(network.get(i, k));
+            }
+        }
+
+        // Counting sort of the moving nodes by the hash of their cell
+        int numHashes = SpatialHash.getNumBuckets(numMoving);
+        int mask = numHashes - 1;
+        if (cellStart.length < numHashes + 1) {
+            cellStart = new int[numHashes + 1];
+        }
+        Arrays.fill(cellStart, 0, numHashes + 1, 0);
+
+        for (int m = 0; m < numMoving; m++) {
+            int i = movingNodes[m];
+            cellOfMoving[m] = SpatialHash.getBucket(x[i], y[i], range, mask);
+            cellStart[cellOfMoving[m]]++;
+        }
+
+        // Every hash first points at its end, and moves to its start while its nodes are placed
+        for (int h = 1; h < numHashes; h++) {
+            cellStart[h] += cellStart[h - 1];
+        }
+        cellStart[numHashes] = numMoving;
+
+        for (int m = numMoving - 1; m >= 0; m--) {
+            sortedMoving[--cellStart[cellOfMoving[m]]] = movingNodes[m];
+        }
+
+        double rangeSquared = range * range;
+        for (int i = 0; i < numNodes; i++) {
+            if (isAsleep(i) && isNearAny(i, range, rangeSquared, mask)) {
+                wake(i);
+            }
+        }
+    }
+
+    /**
+     * @return whether or not any of the sorted moving nodes is within range of the node
+     */
+    private boolean isNearAny(int node, double range, double rangeSquared, int mask) {
+        int cellX = SpatialHash.getCell(x[node], range);
+        int cellY = SpatialHash.getCell(y[node], range);
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                int h = SpatialHash.getBucket(cellX + dx, cellY + dy, mask);
+
+                for (int k = cellStart[h]; k < cellStart[h + 1]; k++) {
+                    double distanceX = x[node] - x[sortedMoving[k]];
+                    double distanceY = y[node] - y[sortedMoving[k]];
+                    if (distanceX * distanceX + distanceY * distanceY < rangeSquared) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wakes a node, which will be moved by the physics again for at least SLEEP_STEPS steps.
+     *
+     * @param node the index of the node to wake
+     */
+    public void wake(int node) {
+        if (laidOut) {
+            restingSteps[node] = 0;
+            atRest = false;
+        }
+    }
+
+    /**
+     * Wakes all nodes
+     */
+    public void wakeAll() {
+        if (laidOut) {
+            Arrays.fill(restingSteps, 0, size, 0);
+            atRest = false;
+        }
+    }
+
+
+    /*
+        Getters
+     */
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isLaidOut() {
+        return laidOut;
+    }
+
+    /**
+     * @param initialLayout places the nodes when the layout is first needed, through this store
+     */
+    public void setInitialLayout(Runnable initialLayout) {
+        this.initialLayout = initialLayout;
+    }
+
+    /**
+     * @param node the index of the node
+     * @return whether or not the node has rested long enough to be skipped by a step with sleeping on
+     */
+    public boolean isAsleep(int node) {
+        return restingSteps[node] >= SLEEP_STEPS;
+    }
+
+    /**
+     * @return whether or not all nodes were asleep after the last step, and none have been woken since
+     */
+    public boolean isAtRest() {
+        return atRest;
+    }
+
+    /**
+     * The arrays of positions are replaced when the store grows, so they should not be held on to across nodes being
+     * added.
+     *
+     * @return the x-coordinates of the nodes
+     */
+    public double[] getPositionsX() {
+        return x;
+    }
+
+    public double[] getPositionsY() {
+        return y;
+    }
+
+    /**
+     * @return the number of bytes currently held by this structure
+     */
+    public long getMemoryFootprint() {
+        return (8L * 6 + 4) * x.length + 4L * (3 * movingNodes.length + cellStart.length);
+    }
+}
@@ -0,0 +1,89 @@
+package com.b14.model;
+
+import java.util.Random;
+
+/**
+ * The source of all randomness in a simulation. Instead of sharing a single generator, every draw comes from a
+ * stream that is keyed by the seed of the run, the epoch, the agent and the purpose of the numbers. A stream is
+ * cheap to (re)start, so every worker can keep its own generator and switch it to the stream it needs. The numbers an
+ * agent gets therefore do not depend on the order in which agents are processed, on other simulations in the same
+ * JVM, or on the thread that happens to draw them.
+ */
+
+public class RandomStreams {
+
+    // Epoch used for draws made while a simulation is set up, before the first epoch
+    public static final int SETUP_EPOCH = -1;
+    // Agent used for draws that do not belong to a single agent
+    public static final int NO_AGENT = -1;
+
+    // Purposes
+    public static final int RECOMMEND = 0;
+    public static final int MESSAGES = 1;
+    public static final int AGENT_SETUP = 2;
+    public static final int NETWORK_SETUP = 3;
+    public static final int LAYOUT = 4;
+    public static final int PHYSICS = 5;
+    public static final int CONNECTION_LIMIT = 6;
+
+    private long seed;
+
+    /**
+     * Creates the random streams of a run
+     *
+     * @param seed the seed of the run
+     */
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return a seed for a new run, which differs from run to run
+     */
+    public static long createSeed() {
+        return new Random().nextLong();
+    }
+
+    /**
+     * Creates a generator positioned at the start of a stream
+     *
+     * @param epoch   the epoch the numbers are drawn in
+     * @param agent   the agent the numbers are drawn for
+     * @param purpose what the numbers are used for
+     * @return a new generator for the stream
+     */
+    public SplitMixRandom get(int epoch, int agent, int purpose) {
+        SplitMixRandom random = new SplitMixRandom(seed);
+        random.setStream(seed, epoch, agent, purpose);
+        return random;
+    }
+
+    /**
+     * Moves an existing generator to the start of a stream, without allocating a new one
+     *
+     * @param random  the generator to move
+     * @param epoch   the epoch the numbers are drawn in
+     * @param agent   the agent the numbers are drawn for
+     * @param purpose what the numbers are used for
+     */
+    public void select(SplitMixRandom random, int epoch, int agent, int purpose) {
+        random.setStream(seed, epoch, agent, purpose);
+    }
+
+    /*
+        Getters, setters
+     */
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Changes the seed of the run, which changes every stream
+     *
+     * @param seed the new seed of the run
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,72 @@
+package com.b14.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only view of a model, which is what recommendation strategies get to prepare an epoch with. It gives access
+ * to the agents, their state and the parameters of the simulation, but to nothing that changes the model, its
+ * settings or its network.
+ * <p>
+ * The view is live: it shows the model as it is when it is read. Nodes are handed out so they can be recommended,
+ * and must not be changed through the view.
+ */
+
+public final class ReadOnlyModel {
+
+    private final GraphModel model;
+    final AgentStore store;
+    private final List<Node> nodes;
+
+    ReadOnlyModel(GraphModel model) {
+        this.model = model;
+        this.store = model.getAgents();
+        this.nodes = Collections.unmodifiableList(model.getNodes());
+    }
+
+    /*
+        Getters
+     */
+
+    public int getEpoch() {
+        return model.getEpoch();
+    }
+
+    public int getRecommendationSize() {
+        return model.getRecommendationSize();
+    }
+
+    public SimulationConfig getConfig() {
+        return store.config;
+    }
+
+    /**
+     * @return the number of agents
+     */
+    public int size() {
+        return store.size();
+    }
+
+    public Node getNode(int id) {
+        return store.getNode(id);
+    }
+
+    /**
+     * @return all nodes in order of their id, as a list that can not be changed
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public float getBelief(int id) {
+        return store.belief[id];
+    }
+
+    public double getDissonance(int id) {
+        return store.dissonance[id];
+    }
+
+    public int getConnectionCount(int id) {
+        return store.network.getDegree(id);
+    }
+}
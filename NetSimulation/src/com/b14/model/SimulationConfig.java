@@ -0,0 +1,80 @@
+package com.b14.model;
+
+/**
+ * The parameters of a single simulation. A config is immutable: a change is made by creating a new config with one of
+ * the with-methods and handing it to the model. Every model has its own config, so models with different parameters
+ * can run side by side in the same program.
+ */
+
+public class SimulationConfig {
+
+    public static final SimulationConfig DEFAULT = new SimulationConfig(50, 0.1f, 0.5f, 30);
+
+    private final int connectionLimit;
+    private final float opennessWeight;
+    private final float dissonanceRatioWeight;
+    private final int contactWindowSize;
+
+    /**
+     * Creates a config
+     *
+     * @param connectionLimit       the maximum number of connections of an agent with an extraversion of 1
+     * @param opennessWeight        the maximum belief distance to consider for an agent with an openness of 1
+     * @param dissonanceRatioWeight the maximum effect of dissonance on the openness of an agent
+     * @param contactWindowSize     the number of most recent contacts the dissonance of an agent is computed over
+     */
+    public SimulationConfig(int connectionLimit, float opennessWeight, float dissonanceRatioWeight,
+                            int contactWindowSize) {
+        if (contactWindowSize < 1) {
+            throw new IllegalArgumentException("The contact window has to hold at least one contact");
+        }
+
+        this.connectionLimit = connectionLimit;
+        this.opennessWeight = opennessWeight;
+        this.dissonanceRatioWeight = dissonanceRatioWeight;
+        this.contactWindowSize = contactWindowSize;
+    }
+
+    public SimulationConfig withConnectionLimit(int connectionLimit) {
+        return new SimulationConfig(connectionLimit, opennessWeight, dissonanceRatioWeight, contactWindowSize);
+    }
+
+    public SimulationConfig withOpennessWeight(float opennessWeight) {
+        return new SimulationConfig(connectionLimit, opennessWeight, dissonanceRatioWeight, contactWindowSize);
+    }
+
+    public SimulationConfig withDissonanceRatioWeight(float dissonanceRatioWeight) {
+        return new SimulationConfig(connectionLimit, opennessWeight, dissonanceRatioWeight, contactWindowSize);
+    }
+
+    public SimulationConfig withContactWindowSize(int contactWindowSize) {
+        return new SimulationConfig(connectionLimit, opennessWeight, dissonanceRatioWeight, contactWindowSize);
+    }
+
+    /*
+        Getters
+     */
+
+    public int getConnectionLimit() {
+        return connectionLimit;
+    }
+
+    public float getOpennessWeight() {
+        return opennessWeight;
+    }
+
+    public float getDissonanceRatioWeight() {
+        return dissonanceRatioWeight;
+    }
+
+    public int getContactWindowSize() {
+        return contactWindowSize;
+    }
+
+    @Override
+    public String toString() {
+        return "connection limit " + connectionLimit + ", openness weight " + opennessWeight +
+                ", dissonance weight " + dissonanceRatioWeight +
+                ", contact window " + contactWindowSize;
+    }
+}
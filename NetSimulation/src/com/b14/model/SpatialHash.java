@@ -0,0 +1,52 @@
+package com.b14.model;
+
+/**
+ * Maps positions to the cells of a uniform grid, and cells to the buckets of a hash table. As the table only holds the
+ * cells that are in use, a grid does not depend on how far apart the positions are. Different cells may end up in the
+ * same bucket, so users of a bucket still have to check the positions they find in it.
+ */
+
+public final class SpatialHash {
+
+    private SpatialHash() {
+    }
+
+    /**
+     * @param coordinate the coordinate of a position along one axis
+     * @param cellSize   the size of a cell
+     * @return the index of the cell along that axis
+     */
+    public static int getCell(double coordinate, double cellSize) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * @param cellX the index of the cell along the x-axis
+     * @param cellY the index of the cell along the y-axis
+     * @param mask  the number of buckets minus one, where the number of buckets is a power of two
+     * @return the bucket of the cell
+     */
+    public static int getBucket(int cellX, int cellY, int mask) {
+        int h = cellX * 0x9E3779B9 + cellY * 0x7FEB352D;
+        return (h ^ (h >>> 15)) & mask;
+    }
+
+    /**
+     * @param x        the x-coordinate of a position
+     * @param y        the y-coordinate of a position
+     * @param cellSize the size of a cell
+     * @param mask     the number of buckets minus one, where the number of buckets is a power of two
+     * @return the bucket of the cell the position is in
+     */
+    public static int getBucket(double x, double y, double cellSize, int mask) {
+        return getBucket(getCell(x, cellSize), getCell(y, cellSize), mask);
+    }
+
+    /**
+     * @param numEntries the number of entries to spread over the buckets
+     * @return a power of two of at least twice the number of entries, and at least 2
+     */
+    public static int getNumBuckets(int numEntries) {
+        return Integer.highestOneBit(Math.max(1, 2 * numEntries - 1)) << 1;
+    }
+}
@@ -0,0 +1,74 @@
+package com.b14.model;
+
+import java.util.Random;
+
+/**
+ * A Random whose sequence is fully determined by a stream key, using the SplitMix64 generator.
+ * Setting the stream to the same (seed, epoch, agent) always yields the same numbers, no matter which thread does
+ * so or in which order agents are processed. Streams are normally selected through the RandomStreams of a model.
+ */
+
+public class SplitMixRandom extends Random {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    public SplitMixRandom(long seed) {
+        super(seed);
+        state = seed;
+    }
+
+    /**
+     * Restarts the generator at the beginning of the stream for the given key.
+     *
+     * @param seed  the seed of the run
+     * @param epoch the epoch the numbers are drawn in
+     * @param agent the agent the numbers are drawn for
+     */
+    public void setStream(long seed, int epoch, int agent) {
+        setStream(seed, epoch, agent, 0);
+    }
+
+    /**
+     * Restarts the generator at the beginning of the stream for the given key. Different purposes give independent
+     * streams for the same agent in the same epoch.
+     *
+     * @param seed    the seed of the run
+     * @param epoch   the epoch the numbers are drawn in
+     * @param agent   the agent the numbers are drawn for
+     * @param purpose what the numbers are used for
+     */
+    public void setStream(long seed, int epoch, int agent, int purpose) {
+        state = mix(mix(seed + GOLDEN_GAMMA * (epoch + 1)) + GOLDEN_GAMMA * (agent + 1));
+
+        if (purpose != 0) {
+            state = mix(state + GOLDEN_GAMMA * purpose);
+        }
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        state = seed;
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    /**
+     * The finalizer of SplitMix64, which scrambles the bits of the input.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
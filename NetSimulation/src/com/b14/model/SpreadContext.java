@@ -0,0 +1,164 @@
+package com.b14.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Holds everything a node uses from outside its own state while it performs its part of a spread step:
+ * the random generator to draw from, where its updated belief is written to, and what happens to the network
+ * when it decides to add or remove a neighbour.
+ * <p>
+ * By default beliefs are updated in place and network changes are applied immediately, as in a sequential
+ * simulation. A parallel engine instead gives every worker its own context, which may write beliefs to a separate
+ * array, and records network changes in the journal of the worker, to be committed after all workers are done.
+ * <p>
+ * A context also holds the scratch buffers used while a node is updated. They are reused from node to node, so
+ * updating a node does not allocate once the buffers have grown to fit the largest neighbourhood. As a consequence,
+ * a context must only be used by one thread at a time.
+ */
+
+public class SpreadContext {
+
+    private final Random random;
+    private final EdgeJournal journal;
+    private float[] beliefsOut = null;
+    private int[] neighbourBuffer = new int[64];
+    private int[] rowBuffer = new int[64];
+    private int[] candidateBuffer = new int[64];
+    private long[] visitedMarkers = new long[0];
+    private final ArrayList<Node> recommended = new ArrayList<>();
+
+    /**
+     * Creates a context that updates beliefs in place and changes the network immediately
+     *
+     * @param random the random generator nodes draw from
+     */
+    public SpreadContext(Random random) {
+        this(random, null);
+    }
+
+    /**
+     * Creates a context
+     *
+     * @param random  the random generator nodes draw from
+     * @param journal the journal network changes are recorded in, or null to change the network immediately
+     */
+    public SpreadContext(Random random, EdgeJournal journal) {
+        this.random = random;
+        this.journal = journal;
+    }
+
+    /**
+     * Connects two nodes, or records the intent to do so.
+     */
+    void addNeighbour(Node node, Node neighbour) {
+        if (journal == null) {
+            node.addNeighbour(neighbour);
+        } else if (!node.isNeighbour(neighbour)) {
+            journal.recordAdd(node.getId(), neighbour.getId());
+        }
+    }
+
+    /**
+     * @return whether or not the node could still gain a neighbour through this context. When changes are recorded,
+     * this is only known once they are committed.
+     */
+    boolean canConnect(Node node) {
+        return journal != null || node.getCanConnect();
+    }
+
+    /**
+     * Disconnects two nodes, or records the intent to do so.
+     */
+    void removeNeighbour(Node node, Node neighbour) {
+        if (journal == null) {
+            node.removeNeighbour(neighbour);
+        } else if (node.isNeighbour(neighbour)) {
+            journal.recordRemove(node.getId(), neighbour.getId());
+        }
+    }
+
+    /*
+        Getters, setters
+     */
+
+    public Random getRandom() {
+        return random;
+    }
+
+    public EdgeJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets the array updated beliefs are written to. When null, beliefs are updated in place.
+     *
+     * @param beliefsOut the array indexed by agent id that receives the updated beliefs
+     */
+    public void setBeliefsOut(float[] beliefsOut) {
+        this.beliefsOut = beliefsOut;
+    }
+
+    float[] getBeliefsOut(AgentStore store) {
+        return (beliefsOut == null) ? store.belief : beliefsOut;
+    }
+
+    /**
+     * @param capacity the number of ids that should fit
+     * @return a scratch array for the ids of the neighbours of a node
+     */
+    int[] getNeighbourBuffer(int capacity) {
+        if (capacity > neighbourBuffer.length) {
+            neighbourBuffer = new int[Math.max(capacity, neighbourBuffer.length * 2)];
+        }
+        return neighbourBuffer;
+    }
+
+    /**
+     * @param capacity the number of ids that should fit
+     * @return a second scratch array for ids of neighbours, for the neighbours of a neighbour
+     */
+    int[] getRowBuffer(int capacity) {
+        if (capacity > rowBuffer.length) {
+            rowBuffer = new int[Math.max(capacity, rowBuffer.length * 2)];
+        }
+        return rowBuffer;
+    }
+
+    /**
+     * Returns a bitset with a bit for every agent, to mark agents while a node is updated. All bits are clear when
+     * it is handed out, and whoever sets bits has to clear them again.
+     *
+     * @param numAgents the number of agents that should have a bit
+     * @return the bitset
+     */
+    long[] getVisitedMarkers(int numAgents) {
+        if (numAgents > 64 * visitedMarkers.length) {
+            visitedMarkers = new long[(numAgents + Long.SIZE - 1) / Long.SIZE];
+        }
+        return visitedMarkers;
+    }
+
+    /**
+     * Returns a scratch array for the ids of candidates a node considers. When the array has to grow, its contents
+     * are kept, so it can be filled bit by bit.
+     *
+     * @param capacity the number of ids that should fit
+     * @return the scratch array
+     */
+    int[] getCandidateBuffer(int capacity) {
+        if (capacity > candidateBuffer.length) {
+            candidateBuffer = Arrays.copyOf(candidateBuffer, Math.max(capacity, candidateBuffer.length * 2));
+        }
+        return candidateBuffer;
+    }
+
+    /**
+     * @return an empty list a worker can collect the recommendations for a node in
+     */
+    public ArrayList<Node> getRecommendedBuffer() {
+        recommended.clear();
+        return recommended;
+    }
+}
@@ -8,7 +8,6 @@ import java.util.Random;
 
 public class Vector2D {
 
-    private final static Random random = new Random(0);
     private double x;
     private double y;
 
@@ -69,17 +68,20 @@ public class Vector2D {
 
     /**
      * Trims the vector down such that its length is 1.
+     *
+     * @param random the generator used to pick a direction if the vector has length 0
      */
-    public void setToUnitVector() {
+    public void setToUnitVector(Random random) {
 
         //We set the vector to a random unit vector if length is 0. This is needed in the case of this vector
         //representing a distance between two nodes on the exact same spot
         if (getLength() == 0) {
-            setToRandomUnitVector();
+            setToRandomUnitVector(random);
         }
 
-        x = x / getLength();
-        y = y / getLength();
+        double length = getLength();
+        x = x / length;
+        y = y / length;
     }
 
     /**
@@ -143,7 +145,7 @@ public class Vector2D {
         this.y = y;
     }
 
-    public void setToRandomUnitVector() {
+    public void setToRandomUnitVector(Random random) {
         x = random.nextFloat();
         y = Math.sqrt(1 - x * x);
     }
@@ -0,0 +1,129 @@
+package com.b14.model;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The worker threads shared by all models in the program, one per processor. Spread engines and physics pools hand
+ * their chunks of work to an executor that is passed in, which is this one unless another is given. Every engine and
+ * pool keeps its own contexts, so models never share scratch buffers or random streams, but running dozens of models
+ * side by side does not start more threads than there are processors.
+ * <p>
+ * Models may themselves run as tasks on the shared executor. The calling thread therefore always works through the
+ * chunks itself, and never waits for a worker that has not started: a thread that is waiting for chunks can not
+ * keep the threads that would run them occupied.
+ */
+
+public final class WorkerThreads {
+
+    private static ExecutorService shared = null; // started on first use
+
+    private WorkerThreads() {
+    }
+
+    /**
+     * @return the executor shared by all models, whose threads do not keep the program alive
+     */
+    public static synchronized ExecutorService getShared() {
+        if (shared == null) {
+            shared = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "simulation-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return shared;
+    }
+
+    /**
+     * Runs the task for every chunk, and waits until all of them are done. Worker 0 runs on the calling thread, and
+     * the other workers are handed to the executor. Workers take the next free chunk until none are left, so each
+     * worker handles its chunks in increasing order. A worker that has not started by the time the calling thread
+     * runs out of chunks is skipped, so the chunks are done even when no thread of the executor is free.
+     *
+     * @param workers    the executor to run the other workers on
+     * @param numWorkers the largest number of workers to use
+     * @param numChunks  the number of chunks
+     * @param task       the work to perform on a chunk
+     */
+    public static void runChunks(ExecutorService workers, int numWorkers, int numChunks, ChunkTask task) {
+        int numHelpers = Math.min(numWorkers, numChunks) - 1;
+
+        if (numHelpers <= 0) {
+            for (int chunk = 0; chunk < numChunks; chunk++) {
+                task.run(0, chunk);
+            }
+            return;
+        }
+
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicBoolean[] started = new AtomicBoolean[numHelpers];
+        Future<?>[] helpers = new Future<?>[numHelpers];
+
+        for (int h = 0; h < numHelpers; h++) {
+            int worker = h + 1;
+            AtomicBoolean workerStarted = started[h] = new AtomicBoolean();
+
+            helpers[h] = workers.submit(() -> {
+                if (workerStarted.compareAndSet(false, true)) {
+                    runWorker(worker, numChunks, nextChunk, task);
+                }
+            });
+        }
+
+        RuntimeException failure = null;
+        try {
+            runWorker(0, numChunks, nextChunk, task);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+
+        // Workers that have started still use their contexts, so they are waited for even after a failure
+        boolean interrupted = false;
+        for (int h = 0; h < numHelpers; h++) {
+            if (started[h].compareAndSet(false, true)) {
+                helpers[h].cancel(false);
+                continue;
+            }
+
+            while (true) {
+                try {
+                    helpers[h].get();
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() :
+                                new RuntimeException(e.getCause());
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void runWorker(int worker, int numChunks, AtomicInteger nextChunk, ChunkTask task) {
+        for (int chunk = nextChunk.getAndIncrement(); chunk < numChunks; chunk = nextChunk.getAndIncrement()) {
+            task.run(worker, chunk);
+        }
+    }
+
+    /**
+     * A piece of work performed by a worker on a single chunk
+     */
+    public interface ChunkTask {
+        void run(int worker, int chunk);
+    }
+}
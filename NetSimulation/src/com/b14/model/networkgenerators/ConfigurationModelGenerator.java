@@ -0,0 +1,84 @@
+package com.b14.model.networkgenerators;
+
+import com.b14.model.AgentStore;
+import com.b14.model.Node;
+import com.b14.model.SplitMixRandom;
+
+/**
+ * A configuration model: every agent draws a number of connections from a power law, capped by its connection limit,
+ * and gets that many stubs. The stubs of all agents are shuffled and joined in pairs. Pairs of stubs of the same
+ * agent, and second connections between the same agents, are dropped, so an agent may end up with a few connections
+ * less than it drew.
+ */
+
+public class ConfigurationModelGenerator implements NetworkGenerator {
+
+    public static final double DEFAULT_EXPONENT = 2.5;
+    public static final int DEFAULT_MIN_DEGREE = 2;
+
+    private final double exponent;
+    private final int minDegree;
+
+    /**
+     * Creates a configuration model generator
+     *
+     * @param exponent  the exponent of the power law of the number of connections, above 1
+     * @param minDegree the smallest number of connections drawn
+     */
+    public ConfigurationModelGenerator(double exponent, int minDegree) {
+        this.exponent = exponent;
+        this.minDegree = minDegree;
+    }
+
+    @Override
+    public void generate(AgentStore agents, SplitMixRandom random) {
+        int numNodes = agents.size();
+        int[] degrees = new int[numNodes];
+        long numStubs = 0;
+
+        for (int i = 0; i < numNodes; i++) {
+            // Inverse transform sampling of a power law starting at minDegree
+            double degree = minDegree * Math.pow(1 - random.nextDouble(), -1 / (exponent - 1));
+            degree = Math.min(degree, Math.min(agents.getNode(i).getIndividualConnectionLimit(), numNodes - 1));
+
+            degrees[i] = (int) degree;
+            numStubs += degrees[i];
+        }
+
+        int[] stubs = new int[Math.toIntExact(numStubs)];
+        int position = 0;
+        for (int i = 0; i < numNodes; i++) {
+            for (int k = 0; k < degrees[i]; k++) {
+                stubs[position++] = i;
+            }
+        }
+
+        // Fisher-Yates shuffle
+        for (int k = stubs.length - 1; k > 0; k--) {
+            int j = random.nextInt(k + 1);
+            int stub = stubs[k];
+            stubs[k] = stubs[j];
+            stubs[j] = stub;
+        }
+
+        for (int k = 0; k + 1 < stubs.length; k += 2) {
+            if (stubs[k] != stubs[k + 1]) {
+                Node node = agents.getNode(stubs[k]);
+                node.addNeighbour(agents.getNode(stubs[k + 1]));
+            }
+        }
+    }
+
+    public double getExponent() {
+        return exponent;
+    }
+
+    public int getMinDegree() {
+        return minDegree;
+    }
+
+    @Override
+    public Type getType() {
+        return Type.CONFIGURATION_MODEL;
+    }
+}
@@ -0,0 +1,81 @@
+package com.b14.model.networkgenerators;
+
+import com.b14.model.AgentStore;
+import com.b14.model.BeliefIndex;
+import com.b14.model.Node;
+import com.b14.model.SplitMixRandom;
+
+/**
+ * A belief-homophilous network: every agent makes a fixed number of connections, each of which goes, with the
+ * homophily probability, to an agent drawn from those whose belief is within a range of its own, and otherwise to an
+ * agent drawn from all agents. Agents with a similar belief are found through a BeliefIndex, in logarithmic time.
+ */
+
+public class HomophilyGenerator implements NetworkGenerator {
+
+    public static final int DEFAULT_CONNECTIONS = 3;
+    public static final double DEFAULT_HOMOPHILY = 0.9;
+    public static final float DEFAULT_BELIEF_RANGE = 0.05f;
+
+    private final int connections;
+    private final double homophily;
+    private final float beliefRange;
+
+    /**
+     * Creates a homophily generator
+     *
+     * @param connections the number of connections every agent makes
+     * @param homophily   the probability that a connection goes to an agent with a similar belief
+     * @param beliefRange how far the belief of an agent may be from one's own to count as similar
+     */
+    public HomophilyGenerator(int connections, double homophily, float beliefRange) {
+        this.connections = connections;
+        this.homophily = homophily;
+        this.beliefRange = beliefRange;
+    }
+
+    @Override
+    public void generate(AgentStore agents, SplitMixRandom random) {
+        int numNodes = agents.size();
+        BeliefIndex index = new BeliefIndex(agents);
+        index.update();
+
+        for (int i = 0; i < numNodes; i++) {
+            Node node = agents.getNode(i);
+
+            // The range always holds the agent itself, so it is never empty
+            int low = index.firstAtLeast(node.getBelief() - beliefRange);
+            int high = index.firstAbove(node.getBelief() + beliefRange);
+
+            for (int c = 0; c < connections; c++) {
+                int j;
+                if (random.nextDouble() < homophily) {
+                    j = index.getAgent(low + random.nextInt(high - low));
+                } else {
+                    j = random.nextInt(numNodes);
+                }
+
+                if (j != i) {
+                    node.addNeighbour(agents.getNode(j));
+                }
+            }
+        }
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public double getHomophily() {
+        return homophily;
+    }
+
+    public float getBeliefRange() {
+        return beliefRange;
+    }
+
+    @Override
+    public Type getType() {
+        return Type.HOMOPHILY;
+    }
+}
@@ -0,0 +1,78 @@
+package com.b14.model.networkgenerators;
+
+import com.b14.model.AgentStore;
+import com.b14.model.SplitMixRandom;
+
+import java.util.Random;
+
+/**
+ * A network generator connects the agents of a freshly set up model, which have no connections yet. Connections are
+ * made with Node.addNeighbour, so no agent exceeds its connection limit. All randomness is drawn from the generator
+ * that is passed in, which the model starts on the network setup stream of the run. The network therefore follows
+ * from the seed of the run: the same seed gives the same network, and every new seed a different one.
+ */
+
+public interface NetworkGenerator {
+
+    /**
+     * Creates a generator of the given type, with default settings
+     *
+     * @param type the type of generator to create
+     * @return the new generator
+     */
+    static NetworkGenerator create(Type type) {
+        switch (type) {
+            case SMALL_WORLD:
+                return new SmallWorldGenerator(SmallWorldGenerator.DEFAULT_NEIGHBOURS,
+                        SmallWorldGenerator.DEFAULT_REWIRING);
+            case STOCHASTIC_BLOCK:
+                return new StochasticBlockGenerator(StochasticBlockGenerator.DEFAULT_BLOCKS,
+                        StochasticBlockGenerator.DEFAULT_DEGREE_IN, StochasticBlockGenerator.DEFAULT_DEGREE_OUT);
+            case CONFIGURATION_MODEL:
+                return new ConfigurationModelGenerator(ConfigurationModelGenerator.DEFAULT_EXPONENT,
+                        ConfigurationModelGenerator.DEFAULT_MIN_DEGREE);
+            case HOMOPHILY:
+                return new HomophilyGenerator(HomophilyGenerator.DEFAULT_CONNECTIONS,
+                        HomophilyGenerator.DEFAULT_HOMOPHILY, HomophilyGenerator.DEFAULT_BELIEF_RANGE);
+            case PREFERENTIAL_ATTACHMENT:
+            default:
+                return new PreferentialAttachmentGenerator();
+        }
+    }
+
+    /**
+     * Connects the agents of a store
+     *
+     * @param agents the agents to connect, which have no connections yet
+     * @param random the generator to draw from
+     */
+    void generate(AgentStore agents, SplitMixRandom random);
+
+    Type getType();
+
+    /**
+     * Draws the number of pairs to skip before the next pair that is connected, when every pair is connected with the
+     * same probability, independently of the others. The skips follow a geometric distribution, so connecting pairs
+     * this way takes time in proportion to the number of connections, instead of the number of pairs.
+     *
+     * @param random      the generator to draw from
+     * @param probability the probability that a pair is connected
+     * @return the number of pairs to skip, or Long.MAX_VALUE when no pair is connected
+     */
+    static long nextSkip(Random random, double probability) {
+        if (probability >= 1) {
+            return 0;
+        }
+        if (probability <= 0) {
+            return Long.MAX_VALUE;
+        }
+
+        // 1 - nextDouble() is in (0, 1], so the logarithm is finite
+        double skip = Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - probability));
+        return (skip >= Long.MAX_VALUE) ? Long.MAX_VALUE : (long) skip;
+    }
+
+    enum Type {
+        PREFERENTIAL_ATTACHMENT, SMALL_WORLD, STOCHASTIC_BLOCK, CONFIGURATION_MODEL, HOMOPHILY
+    }
+}
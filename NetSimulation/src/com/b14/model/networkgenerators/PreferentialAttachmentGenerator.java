@@ -0,0 +1,129 @@
+package com.b14.model.networkgenerators;
+
+import com.b14.model.AgentStore;
+import com.b14.model.FenwickTree;
+import com.b14.model.Node;
+import com.b14.model.SplitMixRandom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The network the model has always started from: agents are connected in a proportionate fashion, where agents with
+ * more connections are more likely to receive new connections, after which the dead ends are connected in pairs.
+ */
+
+public class PreferentialAttachmentGenerator implements NetworkGenerator {
+
+    @Override
+    public void generate(AgentStore agents, SplitMixRandom random) {
+        connectProportionate(agents, random);
+        createLoops(agents, random);
+    }
+
+    /**
+     * Connects the nodes to each other in a proportionate fashion, where nodes with more connections
+     * are more likely to receive new connections.
+     * <p>
+     * Every node is connected to a node before it, drawn with a weight of its number of connections, or 0 once it has
+     * reached its connection limit. The weights are kept in a FenwickTree, so a node is drawn in logarithmic time.
+     *
+     * @param agents the agents to connect
+     * @param random the generator to draw from
+     */
+    private static void connectProportionate(AgentStore agents, SplitMixRandom random) {
+        int numNodes = agents.size();
+
+        Node outgoing = agents.getNode(0);
+        Node ingoing = agents.getNode(1);
+
+        outgoing.addNeighbour(ingoing);
+
+        int[] initialWeights = new int[numNodes];
+        initialWeights[0] = getAttachmentWeight(outgoing);
+        initialWeights[1] = getAttachmentWeight(ingoing);
+        FenwickTree weights = new FenwickTree(initialWeights);
+
+        // Kept as before, including when it no longer matches the sum of the weights
+        int totalConnections = 2;
+
+        for (int k = 2; k < numNodes; k++) {
+            Node unconnected = agents.getNode(k);
+
+            int selected = random.nextInt(totalConnections);
+            int selectedIdx = weights.findByRunningSum(selected);
+
+            // When the weights do not add up to the draw, the first node is chosen
+            if (selectedIdx == numNodes) {
+                selectedIdx = 0;
+            }
+
+            Node newNeighbour = agents.getNode(selectedIdx);
+            newNeighbour.addNeighbour(unconnected);
+            weights.set(newNeighbour.getId(), getAttachmentWeight(newNeighbour));
+            weights.set(unconnected.getId(), getAttachmentWeight(unconnected));
+
+            totalConnections += 2;
+
+            if (newNeighbour.getNeighbours().size() == newNeighbour.getIndividualConnectionLimit()) {
+                totalConnections -= newNeighbour.getIndividualConnectionLimit();
+            }
+
+        }
+    }
+
+    /**
+     * @return the weight with which a node attracts new connections: its number of connections, or 0 when it has
+     * reached its connection limit
+     */
+    private static int getAttachmentWeight(Node node) {
+        int numConnections = node.getConnectionCount();
+        return (numConnections != node.getIndividualConnectionLimit()) ? numConnections : 0;
+    }
+
+    /**
+     * Finds nodes with 1 neighbour (dead ends) and connects them together
+     * <p>
+     * The dead ends are kept in order of their id, and drawn by their position among the ones that remain. A
+     * FenwickTree over the dead ends, with a weight of 1 for the ones that remain, finds such a position in logarithmic
+     * time.
+     *
+     * @param agents the agents to connect
+     * @param random the generator to draw from
+     */
+    private static void createLoops(AgentStore agents, SplitMixRandom random) {
+        ArrayList<Node> onlyOneConnection = new ArrayList<>();
+
+        for (int i = 0; i < agents.size(); i++) {
+            Node n = agents.getNode(i);
+            if (n.getNeighbours().size() == 1 && n.getIndividualConnectionLimit() > 1) {
+                onlyOneConnection.add(n);
+            }
+        }
+
+        int[] ones = new int[onlyOneConnection.size()];
+        Arrays.fill(ones, 1);
+        FenwickTree remaining = new FenwickTree(ones);
+        int numRemaining = ones.length;
+
+        while (numRemaining >= 2) {
+            int first = remaining.findByRunningSum(random.nextInt(numRemaining));
+            int second;
+
+            do {
+                second = remaining.findByRunningSum(random.nextInt(numRemaining));
+            } while (first == second);
+
+            onlyOneConnection.get(first).addNeighbour(onlyOneConnection.get(second));
+
+            remaining.set(first, 0);
+            remaining.set(second, 0);
+            numRemaining -= 2;
+        }
+    }
+
+    @Override
+    public Type getType() {
+        return Type.PREFERENTIAL_ATTACHMENT;
+    }
+}
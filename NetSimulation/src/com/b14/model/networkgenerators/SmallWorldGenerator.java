@@ -0,0 +1,74 @@
+package com.b14.model.networkgenerators;
+
+import com.b14.model.AgentStore;
+import com.b14.model.SplitMixRandom;
+
+/**
+ * A small-world network in the style of Watts and Strogatz. The agents are placed on a ring, and every agent is
+ * connected to the agents closest to it on either side. Each of these connections then has its far end moved to an
+ * agent drawn at random with the rewiring probability, which gives short paths between any two agents while most
+ * neighbourhoods stay clustered.
+ * <p>
+ * The connections to rewire are found by skipping ahead a geometrically distributed number of connections, so only
+ * one random number is drawn per rewired connection.
+ */
+
+public class SmallWorldGenerator implements NetworkGenerator {
+
+    public static final int DEFAULT_NEIGHBOURS = 2;
+    public static final double DEFAULT_REWIRING = 0.1;
+
+    private final int neighbours;
+    private final double rewiring;
+
+    /**
+     * Creates a small-world generator
+     *
+     * @param neighbours the number of agents on either side of an agent on the ring it is connected to
+     * @param rewiring   the probability that a connection has its far end moved to a random agent
+     */
+    public SmallWorldGenerator(int neighbours, double rewiring) {
+        this.neighbours = neighbours;
+        this.rewiring = rewiring;
+    }
+
+    @Override
+    public void generate(AgentStore agents, SplitMixRandom random) {
+        int numNodes = agents.size();
+        int k = Math.min(neighbours, (numNodes - 1) / 2);
+        long numEdges = (long) numNodes * k;
+
+        long nextRewired = NetworkGenerator.nextSkip(random, rewiring);
+
+        for (long e = 0; e < numEdges; e++) {
+            int i = (int) (e / k);
+            int j = (int) ((i + e % k + 1) % numNodes);
+
+            if (e == nextRewired) {
+                // Any agent but i itself
+                j = random.nextInt(numNodes - 1);
+                if (j >= i) {
+                    j++;
+                }
+
+                long skip = NetworkGenerator.nextSkip(random, rewiring);
+                nextRewired = (skip >= numEdges) ? Long.MAX_VALUE : e + 1 + skip;
+            }
+
+            agents.getNode(i).addNeighbour(agents.getNode(j));
+        }
+    }
+
+    public int getNeighbours() {
+        return neighbours;
+    }
+
+    public double getRewiring() {
+        return rewiring;
+    }
+
+    @Override
+    public Type getType() {
+        return Type.SMALL_WORLD;
+    }
+}
@@ -0,0 +1,126 @@
+package com.b14.model.networkgenerators;
+
+import com.b14.model.AgentStore;
+import com.b14.model.SplitMixRandom;
+
+/**
+ * A stochastic block model: the agents are split into blocks of consecutive ids, and every pair of agents is connected
+ * independently, with one probability for pairs within a block and another for pairs in different blocks. The
+ * probabilities follow from the expected number of connections an agent has within and outside its own block.
+ * <p>
+ * The pairs of a block, or of two blocks, are numbered, and the generator skips from one connected pair to the next
+ * by a geometrically distributed number of pairs (Batagelj and Brandes, 2005). This takes time in proportion to the
+ * number of connections, rather than to the number of pairs.
+ */
+
+public class StochasticBlockGenerator implements NetworkGenerator {
+
+    public static final int DEFAULT_BLOCKS = 4;
+    public static final double DEFAULT_DEGREE_IN = 6;
+    public static final double DEFAULT_DEGREE_OUT = 1;
+
+    private final int blocks;
+    private final double degreeIn;
+    private final double degreeOut;
+
+    /**
+     * Creates a stochastic block generator
+     *
+     * @param blocks    the number of blocks
+     * @param degreeIn  the expected number of connections of an agent within its own block
+     * @param degreeOut the expected number of connections of an agent to agents of other blocks
+     */
+    public StochasticBlockGenerator(int blocks, double degreeIn, double degreeOut) {
+        this.blocks = blocks;
+        this.degreeIn = degreeIn;
+        this.degreeOut = degreeOut;
+    }
+
+    @Override
+    public void generate(AgentStore agents, SplitMixRandom random) {
+        int numNodes = agents.size();
+        int numBlocks = Math.max(1, Math.min(blocks, numNodes));
+        double averageBlockSize = (double) numNodes / numBlocks;
+        double probabilityOut = (numBlocks > 1) ? degreeOut / (numNodes - averageBlockSize) : 0;
+
+        for (int a = 0; a < numBlocks; a++) {
+            int startA = getBlockStart(a, numBlocks, numNodes);
+            int sizeA = getBlockStart(a + 1, numBlocks, numNodes) - startA;
+
+            connectWithin(agents, startA, sizeA, (sizeA > 1) ? degreeIn / (sizeA - 1) : 0, random);
+
+            for (int b = a + 1; b < numBlocks; b++) {
+                int startB = getBlockStart(b, numBlocks, numNodes);
+                int sizeB = getBlockStart(b + 1, numBlocks, numNodes) - startB;
+
+                connectBetween(agents, startA, sizeA, startB, sizeB, probabilityOut, random);
+            }
+        }
+    }
+
+    /**
+     * Connects the pairs within a block. Pair (v, w) with w &lt; v has number v * (v - 1) / 2 + w.
+     */
+    private static void connectWithin(AgentStore agents, int start, int size, double probability,
+                                      SplitMixRandom random) {
+        long v = 1;
+        long w = -1;
+
+        while (v < size) {
+            long skip = NetworkGenerator.nextSkip(random, probability);
+            if (skip == Long.MAX_VALUE) {
+                return;
+            }
+
+            w += 1 + skip;
+            while (w >= v && v < size) {
+                w -= v;
+                v++;
+            }
+
+            if (v < size) {
+                agents.getNode(start + (int) v).addNeighbour(agents.getNode(start + (int) w));
+            }
+        }
+    }
+
+    /**
+     * Connects the pairs of an agent of one block and an agent of another. Pair (v, w) has number v * sizeB + w.
+     */
+    private static void connectBetween(AgentStore agents, int startA, int sizeA, int startB, int sizeB,
+                                       double probability, SplitMixRandom random) {
+        long numPairs = (long) sizeA * sizeB;
+        long pair = -1;
+
+        while (true) {
+            long skip = NetworkGenerator.nextSkip(random, probability);
+            if (skip >= numPairs - pair - 1) {
+                return;
+            }
+
+            pair += 1 + skip;
+            agents.getNode(startA + (int) (pair / sizeB)).addNeighbour(agents.getNode(startB + (int) (pair % sizeB)));
+        }
+    }
+
+    private static int getBlockStart(int block, int numBlocks, int numNodes) {
+        return (int) ((long) block * numNodes / numBlocks);
+    }
+
+    public int getBlocks() {
+        return blocks;
+    }
+
+    public double getDegreeIn() {
+        return degreeIn;
+    }
+
+    public double getDegreeOut() {
+        return degreeOut;
+    }
+
+    @Override
+    public Type getType() {
+        return Type.STOCHASTIC_BLOCK;
+    }
+}
@@ -0,0 +1,303 @@
+package com.b14.model.physicsengines;
+
+import com.b14.model.PhysicsContext;
+import com.b14.model.PhysicsStore;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Finds the nodes that push each other with a quadtree (Barnes-Hut), which is rebuilt every step in prepare.
+ * <p>
+ * Cells that are entirely out of range of a node are skipped. A cell that is entirely within range, and whose size
+ * is small compared to its distance from the node (size / distance &lt; theta), pushes as a whole, as if all of its
+ * nodes were at their center of mass. All other cells are opened, down to leaves whose nodes push one by one. As
+ * nodes only push within a short range, cells are only small enough to push as a whole where nodes are crowded,
+ * which is where the exact computation is most expensive.
+ * <p>
+ * The nodes from the leaves that push a node are collected first, and applied in order of their index, like the
+ * brute force engine does. With a theta of 0 no cell pushes as a whole, and the result is exactly that of the brute
+ * force engine, including the random directions of nodes on the same spot; larger values trade accuracy for speed.
+ * The tree is kept in arrays that are reused between steps.
+ */
+
+public class BarnesHutPushEngine implements PushForceEngine {
+
+    public static final double DEFAULT_THETA = 0.5;
+
+    private static final int LEAF_SIZE = 8;
+    private static final int MAX_DEPTH = 32; // for nodes on the exact same spot, which cannot be separated
+    private static final int STACK_SIZE = 3 * MAX_DEPTH + 4;
+
+    private final double theta;
+
+    // Positions of the nodes during the current step
+    private double[] xs;
+    private double[] ys;
+    // Node indices, ordered such that the nodes of every cell are consecutive
+    private int[] order = new int[0];
+
+    // Cells of the tree; the four children of a cell are consecutive
+    private double[] cellX = new double[0]; // lower left corner
+    private double[] cellY = new double[0];
+    private double[] cellSize = new double[0];
+    private double[] massX = new double[0]; // center of mass
+    private double[] massY = new double[0];
+    private int[] cellStart = new int[0];   // range of the nodes of the cell in order
+    private int[] cellEnd = new int[0];
+    private int[] firstChild = new int[0];  // -1 for leaves
+    private int numCells;
+    private int numNodes;
+
+    /**
+     * Creates a Barnes-Hut engine
+     *
+     * @param theta the largest ratio of cell size to distance at which a cell pushes as a whole, at least 0
+     */
+    public BarnesHutPushEngine(double theta) {
+        if (theta < 0) {
+            throw new IllegalArgumentException("theta has to be at least 0");
+        }
+        this.theta = theta;
+    }
+
+    @Override
+    public void prepare(PhysicsStore physics, int numNodes, double range) {
+        this.numNodes = numNodes;
+        xs = physics.getPositionsX();
+        ys = physics.getPositionsY();
+
+        if (numNodes >= 2) {
+            build(numNodes);
+        }
+    }
+
+    @Override
+    public void applyPushForces(PhysicsStore physics, int from, int to, double range, double strength,
+                                PhysicsContext context) {
+        if (numNodes < 2) {
+            return;
+        }
+
+        int[] stack = context.getCellBuffer(STACK_SIZE);
+        int[] pushing = context.getCandidateBuffer(0); // indices of the nodes in leaves that push the current node
+        Random random = context.getRandom();
+        // Slightly wider than the range, so rounding never rules out a node that the exact distance keeps
+        double candidateRangeSquared = range * range * (1 + 1e-9);
+
+        for (int i = from; i < to; i++) {
+            double x = xs[i];
+            double y = ys[i];
+
+            int numPushing = 0;
+            int stackSize = 0;
+            stack[stackSize++] = 0;
+
+            while (stackSize > 0) {
+                int c = stack[--stackSize];
+                if (cellStart[c] == cellEnd[c]) {
+                    continue;
+                }
+
+                // Distance to the nearest point of the cell
+                double lowX = cellX[c];
+                double lowY = cellY[c];
+                double size = cellSize[c];
+                double dx = Math.max(0, Math.max(lowX - x, x - (lowX + size)));
+                double dy = Math.max(0, Math.max(lowY - y, y - (lowY + size)));
+
+                if (dx * dx + dy * dy >= candidateRangeSquared) {
+                    continue;
+                }
+
+                if ((dx > 0 || dy > 0) && cellEnd[c] - cellStart[c] > 1 &&
+                        pushAsWhole(c, i, range, strength, physics, random)) {
+                    continue;
+                }
+
+                if (firstChild[c] < 0) {
+                    if (numPushing + cellEnd[c] - cellStart[c] > pushing.length) {
+                        pushing = context.getCandidateBuffer(numPushing + cellEnd[c] - cellStart[c]);
+                    }
+                    for (int k = cellStart[c]; k < cellEnd[c]; k++) {
+                        int j = order[k];
+                        double nodeDx = x - xs[j];
+                        double nodeDy = y - ys[j];
+                        if (j != i && nodeDx * nodeDx + nodeDy * nodeDy < candidateRangeSquared) {
+                            pushing[numPushing++] = j;
+                        }
+                    }
+                    continue;
+                }
+
+                for (int child = firstChild[c]; child < firstChild[c] + 4; child++) {
+                    stack[stackSize++] = child;
+                }
+            }
+
+            Arrays.sort(pushing, 0, numPushing);
+
+            for (int k = 0; k < numPushing; k++) {
+                int j = pushing[k];
+                double dx = x - xs[j];
+                double dy = y - ys[j];
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                if (distance < range) {
+                    PushForceEngine.push(physics, i, j, distance, range, strength, random);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the push of all nodes in a cell at once, if the cell lies within range and is far enough away.
+     *
+     * @return whether or not the push was applied
+     */
+    private boolean pushAsWhole(int c, int node, double range, double strength, PhysicsStore physics,
+                                Random random) {
+        double x = xs[node];
+        double y = ys[node];
+
+        // Distance to the farthest corner of the cell
+        double farX = Math.max(Math.abs(x - cellX[c]), Math.abs(x - (cellX[c] + cellSize[c])));
+        double farY = Math.max(Math.abs(y - cellY[c]), Math.abs(y - (cellY[c] + cellSize[c])));
+        if (farX * farX + farY * farY >= range * range) {
+            return false;
+        }
+
+        double vx = x - massX[c];
+        double vy = y - massY[c];
+        double distance = Math.sqrt(vx * vx + vy * vy);
+        if (cellSize[c] >= theta * distance) {
+            return false;
+        }
+
+        physics.accelerate(node, vx, vy, distance, (cellEnd[c] - cellStart[c]) * strength * (range - distance),
+                random);
+        return true;
+    }
+
+    /**
+     * Builds the tree over the current positions of the nodes.
+     */
+    private void build(int numNodes) {
+        if (order.length < numNodes) {
+            order = new int[numNodes];
+        }
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < numNodes; i++) {
+            order[i] = i;
+
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+
+        numCells = 0;
+        int root = addCells(1);
+        // Slightly larger than the nodes span, so that nodes on the upper edges fall inside
+        double size = Math.max(maxX - minX, maxY - minY) * (1 + 1e-9) + 1e-9;
+        buildCell(root, minX, minY, size, 0, numNodes, 0);
+    }
+
+    private void buildCell(int c, double lowX, double lowY, double size, int start, int end, int depth) {
+        cellX[c] = lowX;
+        cellY[c] = lowY;
+        cellSize[c] = size;
+        cellStart[c] = start;
+        cellEnd[c] = end;
+        firstChild[c] = -1;
+
+        double sumX = 0;
+        double sumY = 0;
+        for (int k = start; k < end; k++) {
+            sumX += xs[order[k]];
+            sumY += ys[order[k]];
+        }
+        massX[c] = sumX / Math.max(1, end - start);
+        massY[c] = sumY / Math.max(1, end - start);
+
+        if (end - start <= LEAF_SIZE || depth == MAX_DEPTH) {
+            return;
+        }
+
+        double half = size / 2;
+        double midX = lowX + half;
+        double midY = lowY + half;
+
+        int splitX = partition(start, end, xs, midX);
+        int splitLeft = partition(start, splitX, ys, midY);
+        int splitRight = partition(splitX, end, ys, midY);
+
+        int child = addCells(4);
+        firstChild[c] = child;
+
+        buildCell(child, lowX, lowY, half, start, splitLeft, depth + 1);
+        buildCell(child + 1, lowX, midY, half, splitLeft, splitX, depth + 1);
+        buildCell(child + 2, midX, lowY, half, splitX, splitRight, depth + 1);
+        buildCell(child + 3, midX, midY, half, splitRight, end, depth + 1);
+    }
+
+    /**
+     * Reorders a range of order such that the nodes with a coordinate below the split come first.
+     *
+     * @return the position of the first node with a coordinate at or above the split
+     */
+    private int partition(int start, int end, double[] coordinates, double split) {
+        int low = start;
+        int high = end - 1;
+
+        while (low <= high) {
+            if (coordinates[order[low]] < split) {
+                low++;
+            } else {
+                int swap = order[low];
+                order[low] = order[high];
+                order[high--] = swap;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reserves consecutive cells
+     *
+     * @return the index of the first of the new cells
+     */
+    private int addCells(int count) {
+        if (numCells + count > cellX.length) {
+            int capacity = Math.max(2 * cellX.length, numCells + count);
+            cellX = Arrays.copyOf(cellX, capacity);
+            cellY = Arrays.copyOf(cellY, capacity);
+            cellSize = Arrays.copyOf(cellSize, capacity);
+            massX = Arrays.copyOf(massX, capacity);
+            massY = Arrays.copyOf(massY, capacity);
+            cellStart = Arrays.copyOf(cellStart, capacity);
+            cellEnd = Arrays.copyOf(cellEnd, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+        }
+
+        numCells += count;
+        return numCells - count;
+    }
+
+    /*
+        Getters
+     */
+
+    public double getTheta() {
+        return theta;
+    }
+
+    @Override
+    public Type getType() {
+        return Type.BARNES_HUT;
+    }
+}
@@ -0,0 +1,45 @@
+package com.b14.model.physicsengines;
+
+import com.b14.model.PhysicsContext;
+import com.b14.model.PhysicsStore;
+
+/**
+ * Compares every node with every other node. Exact, but takes quadratic time in the number of nodes.
+ */
+
+public class BruteForcePushEngine implements PushForceEngine {
+
+    private int numNodes;
+
+    @Override
+    public void prepare(PhysicsStore physics, int numNodes, double range) {
+        this.numNodes = numNodes;
+    }
+
+    @Override
+    public void applyPushForces(PhysicsStore physics, int from, int to, double range, double strength,
+                                PhysicsContext context) {
+        double[] x = physics.getPositionsX();
+        double[] y = physics.getPositionsY();
+
+        for (int i = from; i < to; i++) {
+            for (int j = 0; j < numNodes; j++) {
+                if (i == j) {
+                    continue;
+                }
+
+                double dx = x[i] - x[j];
+                double dy = y[i] - y[j];
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                if (distance < range) {
+                    PushForceEngine.push(physics, i, j, distance, range, strength, context.getRandom());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Type getType() {
+        return Type.BRUTE_FORCE;
+    }
+}
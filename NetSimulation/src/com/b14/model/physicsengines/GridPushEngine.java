@@ -0,0 +1,288 @@
+package com.b14.model.physicsengines;
+
+import com.b14.model.PhysicsContext;
+import com.b14.model.PhysicsStore;
+import com.b14.model.SpatialHash;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Finds the nodes that push each other with a grid of cells as large as the push range, so a node only has to be
+ * compared with the nodes in its own cell and the eight cells around it. This takes linear time in the number of
+ * nodes, as long as they do not all crowd into a few cells.
+ * <p>
+ * Cells are hashed into a table of buckets, so the grid does not depend on how far apart the nodes are. Within a
+ * bucket, nodes are kept in order of their index. The buckets are kept in arrays that are reused between steps.
+ * <p>
+ * The pushes on a node are added up by one of two kernels:
+ * <ul>
+ * <li>EXACT applies the nodes that push a node in order of their index. The result is exactly that of the brute
+ * force engine, including the random directions drawn for nodes on the same spot.</li>
+ * <li>VECTORIZED keeps the positions in the order of the buckets, and sums the pushes of a whole bucket in one
+ * branch-free loop over these arrays. Such loops are compiled to SIMD instructions by the JIT compiler. As the pushes
+ * are added in a different order, the result differs from the exact one by rounding only.</li>
+ * </ul>
+ * The default kernel is chosen once, at startup: VECTORIZED when the JIT compiler vectorizes loops over doubles,
+ * EXACT otherwise.
+ */
+
+public class GridPushEngine implements PushForceEngine {
+
+    public static final Kernel DEFAULT_KERNEL = detectKernel();
+
+    // Keeps the force finite for nodes on the same spot, while any distance between two real positions is larger
+    private static final double MIN_DISTANCE = 1e-150;
+
+    private final Kernel kernel;
+
+    private int[] bucketOfNode = new int[0];
+    private int[] bucketStart = new int[1]; // range of the nodes of a bucket in sorted
+    private int[] sorted = new int[0];      // node indices, grouped by bucket
+    private double[] sortedX = new double[0]; // positions of the nodes in sorted, for the vectorized kernel
+    private double[] sortedY = new double[0];
+    private int mask;                       // maps a hash to a bucket
+
+    /**
+     * Creates a grid engine with the kernel chosen at startup
+     */
+    public GridPushEngine() {
+        this(DEFAULT_KERNEL);
+    }
+
+    /**
+     * Creates a grid engine
+     *
+     * @param kernel the kernel that adds up the pushes on a node
+     */
+    public GridPushEngine(Kernel kernel) {
+        this.kernel = kernel;
+    }
+
+    @Override
+    public void prepare(PhysicsStore physics, int numNodes, double range) {
+        fillBuckets(physics.getPositionsX(), physics.getPositionsY(), numNodes, range);
+    }
+
+    @Override
+    public void applyPushForces(PhysicsStore physics, int from, int to, double range, double strength,
+                                PhysicsContext context) {
+        if (kernel == Kernel.VECTORIZED) {
+            applyVectorized(physics, from, to, range, strength, context);
+        } else {
+            applyExact(physics, from, to, range, strength, context);
+        }
+    }
+
+    private void applyExact(PhysicsStore physics, int from, int to, double range, double strength,
+                            PhysicsContext context) {
+        double[] xs = physics.getPositionsX();
+        double[] ys = physics.getPositionsY();
+        int[] neighbourBuckets = context.getCellBuffer(9);
+        int[] pushing = context.getCandidateBuffer(0); // indices of the nodes that push the current node
+        // Slightly wider than the range, so rounding never rules out a node that the exact distance keeps
+        double candidateRangeSquared = range * range * (1 + 1e-9);
+
+        for (int i = from; i < to; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            int numBuckets = findNeighbourBuckets(x, y, range, neighbourBuckets);
+
+            int numPushing = 0;
+            for (int b = 0; b < numBuckets; b++) {
+                int bucket = neighbourBuckets[b];
+
+                for (int k = bucketStart[bucket]; k < bucketStart[bucket + 1]; k++) {
+                    int j = sorted[k];
+                    double dx = x - xs[j];
+                    double dy = y - ys[j];
+                    if (j != i && dx * dx + dy * dy < candidateRangeSquared) {
+                        if (numPushing == pushing.length) {
+                            pushing = context.getCandidateBuffer(numPushing + 1);
+                        }
+                        pushing[numPushing++] = j;
+                    }
+                }
+            }
+
+            Arrays.sort(pushing, 0, numPushing);
+
+            for (int k = 0; k < numPushing; k++) {
+                int j = pushing[k];
+                double dx = x - xs[j];
+                double dy = y - ys[j];
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                if (distance < range) {
+                    PushForceEngine.push(physics, i, j, distance, range, strength, context.getRandom());
+                }
+            }
+        }
+    }
+
+    private void applyVectorized(PhysicsStore physics, int from, int to, double range, double strength,
+                                 PhysicsContext context) {
+        double[] xs = physics.getPositionsX();
+        double[] ys = physics.getPositionsY();
+        int[] neighbourBuckets = context.getCellBuffer(9);
+
+        for (int i = from; i < to; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            int numBuckets = findNeighbourBuckets(x, y, range, neighbourBuckets);
+
+            // Gather the positions of all candidates into one run, so the loops below are long enough to vectorize
+            int numCandidates = 0;
+            for (int b = 0; b < numBuckets; b++) {
+                numCandidates += bucketStart[neighbourBuckets[b] + 1] - bucketStart[neighbourBuckets[b]];
+            }
+            double[] dxs = context.getDoubleBuffer(0, numCandidates);
+            double[] dys = context.getDoubleBuffer(1, numCandidates);
+            double[] scales = context.getDoubleBuffer(2, numCandidates);
+
+            int n = 0;
+            for (int b = 0; b < numBuckets; b++) {
+                int start = bucketStart[neighbourBuckets[b]];
+                int length = bucketStart[neighbourBuckets[b] + 1] - start;
+                System.arraycopy(sortedX, start, dxs, n, length);
+                System.arraycopy(sortedY, start, dys, n, length);
+                n += length;
+            }
+
+            // No branches: nodes out of range get a force of 0, and so do the node itself and the nodes on its spot,
+            // as their direction is 0
+            for (int k = 0; k < numCandidates; k++) {
+                double dx = x - dxs[k];
+                double dy = y - dys[k];
+                double distance = Math.sqrt(dx * dx + dy * dy);
+
+                dxs[k] = dx;
+                dys[k] = dy;
+                scales[k] = strength * Math.max(range - distance, 0) / Math.max(distance, MIN_DISTANCE);
+            }
+
+            double forceX = 0;
+            double forceY = 0;
+            for (int k = 0; k < numCandidates; k++) {
+                forceX += dxs[k] * scales[k];
+                forceY += dys[k] * scales[k];
+            }
+            physics.addAcceleration(i, forceX, forceY);
+
+            // Nodes on the exact same spot share a cell; they push in a random direction
+            int ownBucket = SpatialHash.getBucket(x, y, range, mask);
+            for (int k = bucketStart[ownBucket]; k < bucketStart[ownBucket + 1]; k++) {
+                if (sortedX[k] == x && sortedY[k] == y && sorted[k] != i) {
+                    PushForceEngine.push(physics, i, sorted[k], 0, range, strength, context.getRandom());
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the buckets of the cell of a position and the eight cells around it. Different cells may share a bucket;
+     * every bucket is listed once.
+     *
+     * @return the number of buckets found
+     */
+    private int findNeighbourBuckets(double x, double y, double range, int[] neighbourBuckets) {
+        int cellX = SpatialHash.getCell(x, range);
+        int cellY = SpatialHash.getCell(y, range);
+
+        int numBuckets = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                int bucket = SpatialHash.getBucket(cellX + dx, cellY + dy, mask);
+                if (indexOf(neighbourBuckets, numBuckets, bucket) < 0) {
+                    neighbourBuckets[numBuckets++] = bucket;
+                }
+            }
+        }
+        return numBuckets;
+    }
+
+    /**
+     * Sorts the nodes into the buckets of their cells, keeping them in order of their index within a bucket.
+     */
+    private void fillBuckets(double[] xs, double[] ys, int numNodes, double range) {
+        int numBuckets = SpatialHash.getNumBuckets(numNodes);
+        mask = numBuckets - 1;
+
+        if (bucketOfNode.length < numNodes) {
+            bucketOfNode = new int[numNodes];
+            sorted = new int[numNodes];
+            sortedX = new double[numNodes];
+            sortedY = new double[numNodes];
+        }
+        if (bucketStart.length < numBuckets + 1) {
+            bucketStart = new int[numBuckets + 1];
+        }
+        Arrays.fill(bucketStart, 0, numBuckets + 1, 0);
+
+        for (int i = 0; i < numNodes; i++) {
+            bucketOfNode[i] = SpatialHash.getBucket(xs[i], ys[i], range, mask);
+            bucketStart[bucketOfNode[i]]++;
+        }
+
+        // Every bucket first points at its end, and moves to its start while its nodes are placed
+        for (int b = 1; b < numBuckets; b++) {
+            bucketStart[b] += bucketStart[b - 1];
+        }
+        bucketStart[numBuckets] = numNodes;
+
+        // Placing the nodes from the back keeps them in order of their index within a bucket
+        for (int i = numNodes - 1; i >= 0; i--) {
+            sorted[--bucketStart[bucketOfNode[i]]] = i;
+        }
+
+        if (kernel == Kernel.VECTORIZED) {
+            for (int k = 0; k < numNodes; k++) {
+                sortedX[k] = xs[sorted[k]];
+                sortedY[k] = ys[sorted[k]];
+            }
+        }
+    }
+
+    private static int indexOf(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return VECTORIZED when the JIT compiler of this JVM compiles loops to SIMD instructions of at least two doubles
+     * wide, EXACT otherwise, or when this cannot be found out
+     */
+    private static Kernel detectKernel() {
+        try {
+            HotSpotDiagnosticMXBean vm = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            boolean superWord = Boolean.parseBoolean(vm.getVMOption("UseSuperWord").getValue());
+            int maxVectorSize = Integer.parseInt(vm.getVMOption("MaxVectorSize").getValue());
+
+            return (superWord && maxVectorSize >= 2 * Double.BYTES) ? Kernel.VECTORIZED : Kernel.EXACT;
+        } catch (RuntimeException | LinkageError e) {
+            // Not a HotSpot JVM, or one without the C2 compiler
+            return Kernel.EXACT;
+        }
+    }
+
+    /*
+        Getters
+     */
+
+    public Kernel getKernel() {
+        return kernel;
+    }
+
+    @Override
+    public Type getType() {
+        return Type.GRID;
+    }
+
+    public enum Kernel {
+        EXACT, VECTORIZED
+    }
+}
@@ -0,0 +1,85 @@
+package com.b14.model.physicsengines;
+
+import com.b14.model.PhysicsContext;
+import com.b14.model.PhysicsStore;
+
+import java.util.Random;
+
+/**
+ * A push force engine applies the force with which nodes push each other apart. Nodes only push nodes that are closer
+ * than a fixed range, with a force that decreases linearly from its strength times the range, for nodes on the same
+ * spot, to 0 at the range.
+ */
+
+public interface PushForceEngine {
+
+    /**
+     * Creates an engine of the given type, with default settings
+     *
+     * @param type the type of engine to create
+     * @return the new engine
+     */
+    static PushForceEngine create(Type type) {
+        switch (type) {
+            case GRID:
+                return new GridPushEngine();
+            case BARNES_HUT:
+                return new BarnesHutPushEngine(BarnesHutPushEngine.DEFAULT_THETA);
+            case BRUTE_FORCE:
+            default:
+                return new BruteForcePushEngine();
+        }
+    }
+
+    /**
+     * Prepares the engine for the current positions of the nodes, for instance by building a spatial index. Called
+     * once per physics step, before the push forces are applied.
+     *
+     * @param physics  the physics state of the nodes
+     * @param numNodes the number of nodes, which push each other
+     * @param range    the distance up to which nodes push each other
+     */
+    void prepare(PhysicsStore physics, int numNodes, double range);
+
+    /**
+     * Adds the push forces of all nodes to the accelerations of a range of nodes. Only the accelerations of the nodes
+     * within the range are changed, so disjoint ranges can be handled by several threads at once, each with its own
+     * context.
+     *
+     * @param physics  the physics state of the nodes
+     * @param from     the index of the first node that is pushed
+     * @param to       the index after the last node that is pushed
+     * @param range    the distance up to which nodes push each other
+     * @param strength the force per unit of distance that two nodes are closer than the range
+     * @param context  the scratch buffers of the calling thread, and the generator used to pick a direction for nodes
+     *                 on the exact same spot
+     */
+    void applyPushForces(PhysicsStore physics, int from, int to, double range, double strength,
+                         PhysicsContext context);
+
+    Type getType();
+
+    /**
+     * Adds the push of other on node to the acceleration of node
+     *
+     * @param physics  the physics state of the nodes
+     * @param node     the index of the node that is pushed
+     * @param other    the index of the node that pushes
+     * @param distance the distance between the two nodes
+     * @param range    the distance up to which nodes push each other
+     * @param strength the force per unit of distance that the nodes are closer than the range
+     * @param random   the generator used to pick a direction for nodes on the exact same spot
+     */
+    static void push(PhysicsStore physics, int node, int other, double distance, double range, double strength,
+                     Random random) {
+        double[] x = physics.getPositionsX();
+        double[] y = physics.getPositionsY();
+
+        physics.accelerate(node, x[node] - x[other], y[node] - y[other], distance, strength * (range - distance),
+                random);
+    }
+
+    enum Type {
+        BRUTE_FORCE, GRID, BARNES_HUT
+    }
+}
@@ -0,0 +1,123 @@
+package com.b14.model.recommendationstrategies;
+
+import com.b14.model.BeliefIndex;
+import com.b14.model.Node;
+import com.b14.model.ReadOnlyModel;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Base for strategies that recommend nodes whose belief lies within a range around the belief of the agent.
+ * The nodes are kept ordered by belief in a BeliefIndex, which is updated once per epoch, so the nodes in a range
+ * are found with a binary search. Recommendations are drawn at random from the nodes in the range that qualify.
+ */
+
+public abstract class BeliefRangeStrategy implements RecommendationStrategy {
+
+    // Failed draws after which sampling from a belief range switches to a scan of the range
+    private static final int MAX_MISSES = 16;
+
+    private ReadOnlyModel model = null;
+    private BeliefIndex beliefIndex = null;
+
+    @Override
+    public void prepare(ReadOnlyModel model) {
+        if (this.model != model) {
+            this.model = model;
+            beliefIndex = new BeliefIndex(model);
+        }
+
+        beliefIndex.update();
+    }
+
+    /**
+     * Draws up to size distinct nodes from a range of the belief index, such that every selection of nodes that
+     * qualify is equally likely. Positions are drawn at random while that finds qualifying nodes; when too many draws
+     * fail, the remaining nodes are chosen by reservoir sampling over the whole range.
+     *
+     * @param agent       the agent the nodes are recommended to
+     * @param margin      a value computed once for the agent, handed on to qualifies
+     * @param fromBelief  the lowest belief of the range
+     * @param toBelief    the highest belief of the range
+     * @param size        the maximum number of nodes to draw
+     * @param recommended an empty list that receives the drawn nodes
+     */
+    protected void sampleRange(Node agent, float margin, float fromBelief, float toBelief, int size, Random random,
+                               List<Node> recommended) {
+        int from = beliefIndex.firstAtLeast(fromBelief);
+        int to = beliefIndex.firstAbove(toBelief);
+        int rangeSize = to - from;
+
+        if (rangeSize <= 0 || size <= 0) {
+            return;
+        }
+
+        int misses = (rangeSize <= 2 * size) ? MAX_MISSES : 0; // scan small ranges right away
+        while (recommended.size() < size && misses < MAX_MISSES) {
+            int position = from + random.nextInt(rangeSize);
+            Node n = model.getNode(beliefIndex.getAgent(position));
+
+            if (qualifies(agent, margin, n, beliefIndex.getBelief(position)) &&
+                    indexOf(recommended, n, recommended.size()) < 0) {
+                recommended.add(n);
+            } else {
+                misses++;
+            }
+        }
+
+        if (recommended.size() == size) {
+            return;
+        }
+
+        int numDrawn = recommended.size();
+        int numSeen = 0;
+
+        for (int position = from; position < to; position++) {
+            Node n = model.getNode(beliefIndex.getAgent(position));
+
+            if (!qualifies(agent, margin, n, beliefIndex.getBelief(position)) ||
+                    indexOf(recommended, n, numDrawn) >= 0) {
+                continue;
+            }
+
+            numSeen++;
+            if (recommended.size() < size) {
+                recommended.add(n);
+            } else {
+                int replaced = random.nextInt(numSeen);
+                if (replaced < size - numDrawn) {
+                    recommended.set(numDrawn + replaced, n);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decides whether a node from the belief index qualifies for a recommendation
+     *
+     * @param agent  the agent the node would be recommended to
+     * @param margin the value passed to sampleRange for the agent
+     * @param node   the node
+     * @param belief the belief of the node at the start of the epoch
+     * @return whether or not the node may be recommended
+     */
+    protected abstract boolean qualifies(Node agent, float margin, Node node, float belief);
+
+    /**
+     * @return the position of the node among the first count recommended nodes, or -1 if it is not one of them
+     */
+    private static int indexOf(List<Node> recommended, Node n, int count) {
+        for (int i = 0; i < count; i++) {
+            if (recommended.get(i) == n) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,37 @@
+package com.b14.model.recommendationstrategies;
+
+import com.b14.model.Node;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Recommends nodes to the agent that are closer to a neutral belief (0.5) than the agent, and that are close to the
+ * agent in belief. Both conditions bound the belief of a node from two sides, so together they select a single range
+ * of beliefs.
+ */
+
+public class NeutralizeStrategy extends BeliefRangeStrategy {
+
+    private static final float maxDeviationDifference = 0.1f;
+
+    @Override
+    public void recommend(Node agent, int size, Random random, List<Node> recommended) {
+        float belief = agent.getBelief();
+        float ownDeviation = Math.abs(0.5f - belief);
+
+        sampleRange(agent, ownDeviation, Math.max(0.5f - ownDeviation, belief - maxDeviationDifference),
+                Math.min(0.5f + ownDeviation, belief + maxDeviationDifference), size, random, recommended);
+    }
+
+    @Override
+    protected boolean qualifies(Node agent, float ownDeviation, Node node, float belief) {
+        return node != agent && Math.abs(0.5f - belief) < ownDeviation &&
+                Math.abs(agent.getBelief() - belief) < maxDeviationDifference;
+    }
+
+    @Override
+    public String getName() {
+        return "NEUTRALIZE";
+    }
+}
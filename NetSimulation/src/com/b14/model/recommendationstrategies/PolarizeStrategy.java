@@ -0,0 +1,37 @@
+package com.b14.model.recommendationstrategies;
+
+import com.b14.model.Node;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Recommends nodes to the agent that are similar to the agent in belief, and that the agent is not connected to yet
+ * but could connect to.
+ */
+
+public class PolarizeStrategy extends BeliefRangeStrategy {
+
+    @Override
+    public void recommend(Node agent, int size, Random random, List<Node> recommended) {
+        if (!agent.getCanConnect()) {
+            return; // no node would qualify
+        }
+
+        float belief = agent.getBelief();
+        float openness = agent.getWeightedOpenness();
+
+        sampleRange(agent, openness, belief - openness, belief + openness, size, random, recommended);
+    }
+
+    @Override
+    protected boolean qualifies(Node agent, float openness, Node node, float belief) {
+        return node != agent && Math.abs(belief - agent.getBelief()) < openness && !agent.isNeighbour(node) &&
+                agent.canTwoConnect(node);
+    }
+
+    @Override
+    public String getName() {
+        return "POLARIZE";
+    }
+}
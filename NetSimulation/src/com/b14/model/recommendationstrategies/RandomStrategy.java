@@ -0,0 +1,159 @@
+package com.b14.model.recommendationstrategies;
+
+import com.b14.model.Node;
+import com.b14.model.ReadOnlyModel;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Recommends random other nodes to the agent, optionally leaving out the nodes the agent is connected to already.
+ * <p>
+ * Every recommended node is distinct, and every selection of qualifying nodes is equally likely. Nodes are drawn
+ * with Floyd's algorithm, which needs exactly one random number per recommended node. When neighbours are left out,
+ * they are rejected as they are drawn; if that fails too often, the remaining nodes are chosen by reservoir sampling
+ * over all nodes. If there are no more qualifying nodes than the size of the set, all of them are recommended.
+ * Apart from filling the given list, a recommendation does not allocate.
+ */
+
+public class RandomStrategy implements RecommendationStrategy {
+
+    // Failed draws after which sampling switches to a scan over all nodes
+    private static final int MAX_MISSES = 16;
+
+    private final boolean excludeNeighbours;
+    private List<Node> nodes;
+
+    /**
+     * Creates a strategy that may also recommend nodes the agent is connected to already
+     */
+    public RandomStrategy() {
+        this(false);
+    }
+
+    /**
+     * Creates a random strategy
+     *
+     * @param excludeNeighbours whether or not to leave out the nodes the agent is connected to already
+     */
+    public RandomStrategy(boolean excludeNeighbours) {
+        this.excludeNeighbours = excludeNeighbours;
+    }
+
+    @Override
+    public void prepare(ReadOnlyModel model) {
+        nodes = model.getNodes();
+    }
+
+    @Override
+    public void recommend(Node agent, int size, Random random, List<Node> recommended) {
+        int numOthers = nodes.size() - 1;
+        int numQualifying = excludeNeighbours ? numOthers - agent.getConnectionCount() : numOthers;
+
+        if (size <= 0 || numQualifying <= 0) {
+            return;
+        }
+
+        if (size >= numQualifying) {
+            for (int i = 0; i < nodes.size(); i++) {
+                if (qualifies(agent, nodes.get(i))) {
+                    recommended.add(nodes.get(i));
+                }
+            }
+            return;
+        }
+
+        if (!excludeNeighbours) {
+            sampleFloyd(agent, size, numOthers, random, recommended);
+        } else {
+            sampleRejecting(agent, size, numOthers, random, recommended);
+        }
+    }
+
+    /**
+     * Draws size distinct nodes other than the agent with Floyd's algorithm.
+     */
+    private void sampleFloyd(Node agent, int size, int numOthers, Random random, List<Node> recommended) {
+        for (int j = numOthers - size; j < numOthers; j++) {
+            Node n = getOther(agent, random.nextInt(j + 1));
+
+            // If the drawn node was chosen before, node j cannot have been, as only nodes below j could be drawn
+            recommended.add(indexOf(recommended, n, recommended.size()) >= 0 ? getOther(agent, j) : n);
+        }
+    }
+
+    /**
+     * Draws size distinct nodes other than the agent that the agent is not connected to.
+     */
+    private void sampleRejecting(Node agent, int size, int numOthers, Random random, List<Node> recommended) {
+        int misses = 0;
+
+        while (recommended.size() < size && misses < MAX_MISSES) {
+            Node n = getOther(agent, random.nextInt(numOthers));
+
+            if (!agent.isNeighbour(n) && indexOf(recommended, n, recommended.size()) < 0) {
+                recommended.add(n);
+            } else {
+                misses++;
+            }
+        }
+
+        if (recommended.size() == size) {
+            return;
+        }
+
+        int numDrawn = recommended.size();
+        int numSeen = 0;
+
+        for (int i = 0; i < nodes.size(); i++) {
+            Node n = nodes.get(i);
+            if (!qualifies(agent, n) || indexOf(recommended, n, numDrawn) >= 0) {
+                continue;
+            }
+
+            numSeen++;
+            if (recommended.size() < size) {
+                recommended.add(n);
+            } else {
+                int replaced = random.nextInt(numSeen);
+                if (replaced < size - numDrawn) {
+                    recommended.set(numDrawn + replaced, n);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param index the index of a node among all nodes except the agent
+     * @return that node
+     */
+    private Node getOther(Node agent, int index) {
+        return nodes.get(index < agent.getId() ? index : index + 1);
+    }
+
+    /**
+     * @return the position of the node among the first count recommended nodes, or -1 if it is not one of them
+     */
+    private static int indexOf(List<Node> recommended, Node n, int count) {
+        for (int i = 0; i < count; i++) {
+            if (recommended.get(i) == n) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean qualifies(Node agent, Node n) {
+        return n != agent && !(excludeNeighbours && agent.isNeighbour(n));
+    }
+
+    @Override
+    public String getName() {
+        return excludeNeighbours ? "RANDOM_NON_NEIGHBOURS" : "RANDOM";
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
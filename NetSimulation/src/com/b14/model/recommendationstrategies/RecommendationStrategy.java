@@ -1,96 +1,47 @@
 package com.b14.model.recommendationstrategies;
 
 import com.b14.model.Node;
+import com.b14.model.ReadOnlyModel;
 
-import javax.naming.OperationNotSupportedException;
-import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
-public class RecommendationStrategy {
-    private static final Random random = new Random(0);
-
-    public static ArrayList<Node> recommend(Strategy strategy, ArrayList<Node> nodes, Node current, int size) throws OperationNotSupportedException {
-        switch (strategy) {
-            case RANDOM:
-                return recommendRandom(nodes, current, size);
-            case POLARIZE:
-                return recommendPolarize(nodes, current, size);
-            case NEUTRALIZE:
-                return recommendNeutralize(nodes, current, size);
-            default:
-                throw new OperationNotSupportedException();
-        }
-    }
+/**
+ * Decides which nodes are proposed to an agent as possible new connections.
+ * <p>
+ * A strategy is used in two steps every epoch. First prepare is called once, before any agent is updated, so the
+ * strategy can build whatever it needs from the state of the model at the start of the epoch (such as an index).
+ * It gets a read-only view of the model, so a strategy can not change the model or its settings in the middle of a
+ * spread step.
+ * Then recommend is called for every agent. Spread engines may call recommend from several threads at once, so it
+ * must not change any state that is shared between agents.
+ * <p>
+ * Every model has its own strategy instance. New strategies are made available in the menu by registering them in
+ * the RecommendationStrategyRegistry.
+ */
+
+public interface RecommendationStrategy {
 
     /**
-     * Recommends random other nodes to the agent
+     * Prepares the strategy for the recommendations of an epoch.
      *
-     * @param agent the agent for which the recommendation set is constructed
-     * @param size  the maximum size of the recommended connections
+     * @param model a read-only view of the model at the start of the epoch
      */
-    private static ArrayList<Node> recommendRandom(ArrayList<Node> nodes, Node agent, int size) {
-        ArrayList<Node> recommended = new ArrayList<>();
-
-        while (recommended.size() < size) {
-            Node n = nodes.get(random.nextInt(nodes.size()));
-            if (n != agent) {
-                recommended.add(n);
-            }
-        }
-
-        return recommended;
+    default void prepare(ReadOnlyModel model) {
     }
 
     /**
-     * Recommends nodes to node agent that are similar to the agent in belief
+     * Recommends nodes to an agent. Must be safe to call from several threads at once.
      *
-     * @param agent the agent for which the recommendation set is constructed
-     * @param size  the maximum size of the recommended connections
+     * @param agent       the agent for which the recommendation set is constructed
+     * @param size        the maximum number of nodes to recommend
+     * @param random      the random generator to draw from
+     * @param recommended an empty list that receives the recommended nodes
      */
+    void recommend(Node agent, int size, Random random, List<Node> recommended);
 
-    private static ArrayList<Node> recommendPolarize(ArrayList<Node> nodes, Node agent, int size) {
-        ArrayList<Node> recommended = new ArrayList<>();
-
-        for (Node n : nodes) {
-            if (n == agent) {
-                continue;
-            }
-            if (recommended.size() > size) {
-                break;
-            }
-            if ((Math.abs(n.getBelief() - agent.getBelief()) < agent.getWeightedOpenness()) &&
-                    !agent.getNeighbours().contains(n) && agent.canTwoConnect(n)) {
-                recommended.add(n);
-            }
-        }
-        return recommended;
-    }
-
-    private static ArrayList<Node> recommendNeutralize(ArrayList<Node> nodes, Node agent, int size) {
-        ArrayList<Node> recommended = new ArrayList<>();
-        float maxDeviationDifference = 0.1f;
-
-        float ownDeviation = Math.abs(0.5f - agent.getBelief());
-
-        for (Node n : nodes) {
-            if (n == agent) {
-                continue;
-            }
-            if (recommended.size() > size) {
-                break;
-            }
-
-            float distanceToNeutral = Math.abs(0.5f - n.getBelief());
-
-            if (distanceToNeutral < ownDeviation && Math.abs(agent.getBelief() - n.getBelief()) < maxDeviationDifference) {
-                recommended.add(n);
-            }
-        }
-
-        return recommended;
-    }
-
-    public enum Strategy {
-        RANDOM, POLARIZE, NEUTRALIZE
-    }
+    /**
+     * @return the name under which the strategy is registered
+     */
+    String getName();
 }
@@ -0,0 +1,57 @@
+package com.b14.model.recommendationstrategies;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Keeps track of the recommendation strategies that can be chosen, by name. As every model needs its own strategy
+ * instance, a strategy is registered with a factory that creates a new instance.
+ */
+
+public class RecommendationStrategyRegistry {
+
+    private static final LinkedHashMap<String, Supplier<RecommendationStrategy>> factories = new LinkedHashMap<>();
+
+    static {
+        register("RANDOM", RandomStrategy::new);
+        register("RANDOM_NON_NEIGHBOURS", () -> new RandomStrategy(true));
+        register("POLARIZE", PolarizeStrategy::new);
+        register("NEUTRALIZE", NeutralizeStrategy::new);
+    }
+
+    /**
+     * Makes a strategy available under the given name. A strategy registered earlier under the same name is replaced.
+     *
+     * @param name    the name of the strategy, as shown in the menu
+     * @param factory creates a new instance of the strategy
+     */
+    public static synchronized void register(String name, Supplier<RecommendationStrategy> factory) {
+        factories.put(name, factory);
+    }
+
+    /**
+     * Creates a new instance of a registered strategy
+     *
+     * @param name the name the strategy was registered under
+     * @return the new strategy
+     * @throws IllegalArgumentException if no strategy is registered under the name
+     */
+    public static synchronized RecommendationStrategy create(String name) {
+        Supplier<RecommendationStrategy> factory = factories.get(name);
+
+        if (factory == null) {
+            throw new IllegalArgumentException("No recommendation strategy registered as " + name);
+        }
+
+        return factory.get();
+    }
+
+    /**
+     * @return the names of all registered strategies, in order of registration
+     */
+    public static synchronized List<String> getNames() {
+        return new ArrayList<>(factories.keySet());
+    }
+}
@@ -0,0 +1,216 @@
+package com.b14.model.spreadengines;
+
+import com.b14.model.Adjacency;
+import com.b14.model.AgentStore;
+import com.b14.model.EdgeJournal;
+import com.b14.model.GraphModel;
+import com.b14.model.Node;
+import com.b14.model.RandomStreams;
+import com.b14.model.SplitMixRandom;
+import com.b14.model.WorkerThreads;
+import com.b14.model.recommendationstrategies.RecommendationStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Updates the nodes in place, like the sequential engine, but processes groups of independent nodes in parallel.
+ * <p>
+ * At the start of an epoch the recommendations for all nodes are made. The graph formed by the connections and the
+ * recommendations is then colored, such that no two nodes of the same color exchange messages with each other.
+ * The colors are processed one after another. Nodes of one color are updated in parallel, reading the beliefs
+ * (and connections) as left behind by the previous colors, and writing their own belief in place. Network changes
+ * made by a color are committed in node order before the next color starts. The outcome of the message exchange is
+ * therefore exactly that of a sequential pass over the nodes ordered by color, and by id within a color, and it does
+ * not depend on the number of threads.
+ * <p>
+ * The differences with the sequential engine are the order of the nodes, and that recommendations are based on the
+ * state at the start of the epoch. Fraternizing is done per color as well; as it looks two steps into the network,
+ * a node does not see connections made by nodes of the same color in the same epoch.
+ * <p>
+ * The coloring of the connections is kept from epoch to epoch, and is only repaired locally when a connection
+ * between two nodes of the same color is added. It is recomputed from scratch when the network was changed outside
+ * this engine.
+ */
+
+public class ColoredSpreadEngine extends PooledSpreadEngine implements EdgeJournal.Listener {
+
+    private static final int CHUNK_SIZE = 256;
+
+    private final GraphColoring networkColoring = new GraphColoring(); // coloring of the connections only
+    private final GraphColoring epochColoring = new GraphColoring(); // including this epoch's recommendations
+    private final ArrayList<ArrayList<Node>> recommended = new ArrayList<>();
+    private int knownModificationCount = -1;
+    private Adjacency network = null;
+
+    private int[] recommendationOffsets = new int[1];
+    private int[] recommendationTargets = new int[0];
+    private int[] order = new int[0];
+    private int[] classOffsets = new int[1];
+
+    /**
+     * Creates a colored engine that runs its workers on the threads shared by all models
+     *
+     * @param threads the number of workers to use
+     */
+    public ColoredSpreadEngine(int threads) {
+        this(WorkerThreads.getShared(), threads);
+    }
+
+    /**
+     * Creates a colored engine
+     *
+     * @param workers the executor to run the workers on, which is not shut down by the engine
+     * @param threads the number of workers to use
+     */
+    public ColoredSpreadEngine(ExecutorService workers, int threads) {
+        super(workers, threads, CHUNK_SIZE);
+    }
+
+    @Override
+    public void spreadStep(GraphModel model) {
+        ArrayList<Node> nodes = model.getNodes();
+        AgentStore store = model.getAgents();
+        RecommendationStrategy strategy = model.getRecommendationStrategy();
+        int recommendationSize = model.getRecommendationSize();
+        RandomStreams randomStreams = model.getRandomStreams();
+        int epoch = model.getEpoch();
+        int numNodes = nodes.size();
+
+        if (network != store.getNetwork() || networkColoring.getNumNodes() != numNodes ||
+                knownModificationCount != store.getNetwork().getModificationCount()) {
+            network = store.getNetwork();
+            networkColoring.colorAll(network, numNodes);
+        }
+
+        network.removeTombstones();
+        setBeliefsOut(null);
+
+        // Recommendations, based on the state at the start of the epoch
+        while (recommended.size() < numNodes) {
+            recommended.add(new ArrayList<>());
+        }
+
+        runChunks(numNodes, (context, from, to) -> {
+            SplitMixRandom random = (SplitMixRandom) context.getRandom();
+
+            for (int i = from; i < to; i++) {
+                randomStreams.select(random, epoch, i, RandomStreams.RECOMMEND);
+                recommended.get(i).clear();
+                strategy.recommend(nodes.get(i), recommendationSize, random, recommended.get(i));
+            }
+        });
+
+        colorEpoch(numNodes);
+
+        // Message exchange, pruning and belief update, color by color
+        for (int c = 0; c < epochColoring.getNumColors(); c++) {
+            int classStart = classOffsets[c];
+
+            runChunks(classOffsets[c + 1] - classStart, (context, from, to) -> {
+                SplitMixRandom random = (SplitMixRandom) context.getRandom();
+
+                for (int k = classStart + from; k < classStart + to; k++) {
+                    Node n = nodes.get(order[k]);
+                    randomStreams.select(random, epoch, order[k], RandomStreams.MESSAGES);
+
+                    n.reset(); // clear confidence set
+                    n.receiveMessages(recommended.get(order[k]), context);
+                }
+            });
+            commitEdgeChanges(store, this);
+        }
+
+        // Fraternizing, color by color
+        for (int c = 0; c < epochColoring.getNumColors(); c++) {
+            int classStart = classOffsets[c];
+
+            runChunks(classOffsets[c + 1] - classStart, (context, from, to) -> {
+                for (int k = classStart + from; k < classStart + to; k++) {
+                    Node n = nodes.get(order[k]);
+                    if (n.getCanConnect()) {
+                        n.fraternize(context);
+                    }
+                }
+            });
+            commitEdgeChanges(store, this);
+        }
+
+        knownModificationCount = network.getModificationCount();
+    }
+
+    /**
+     * Extends the coloring of the connections to one that also separates nodes from their recommendations, and
+     * groups the nodes by their color.
+     */
+    private void colorEpoch(int numNodes) {
+        if (recommendationOffsets.length < numNodes + 1) {
+            recommendationOffsets = new int[numNodes + 1];
+        }
+        Arrays.fill(recommendationOffsets, 0, numNodes + 1, 0);
+
+        // Recommendations are listed for both the recommended node and the one it is recommended to
+        for (int i = 0; i < numNodes; i++) {
+            for (Node n : recommended.get(i)) {
+                recommendationOffsets[i + 1]++;
+                recommendationOffsets[n.getId() + 1]++;
+            }
+        }
+
+        for (int i = 0; i < numNodes; i++) {
+            recommendationOffsets[i + 1] += recommendationOffsets[i];
+        }
+
+        if (recommendationTargets.length < recommendationOffsets[numNodes]) {
+            recommendationTargets = new int[recommendationOffsets[numNodes]];
+        }
+
+        int[] next = Arrays.copyOf(recommendationOffsets, numNodes);
+        for (int i = 0; i < numNodes; i++) {
+            for (Node n : recommended.get(i)) {
+                recommendationTargets[next[i]++] = n.getId();
+                recommendationTargets[next[n.getId()]++] = i;
+            }
+        }
+
+        epochColoring.copyFrom(networkColoring);
+        epochColoring.repair(network, recommendationOffsets, recommendationTargets);
+
+        if (order.length < numNodes) {
+            order = new int[numNodes];
+        }
+        if (classOffsets.length < epochColoring.getNumColors() + 1) {
+            classOffsets = new int[epochColoring.getNumColors() + 1];
+        }
+        epochColoring.getColorClasses(order, classOffsets);
+    }
+
+    @Override
+    public void edgeAdded(int node, int other) {
+        networkColoring.repair(network, node, other);
+    }
+
+    @Override
+    public void edgeRemoved(int node, int other) {
+        // Keep the network free of tombstones, so workers read neighbours by position in constant time
+        network.removeTombstones(node);
+        network.removeTombstones(other);
+    }
+
+    /*
+        Getters
+     */
+
+    @Override
+    public Type getType() {
+        return Type.COLORED;
+    }
+
+    /**
+     * @return the number of colors used in the last epoch, i.e. the number of parallel phases per step
+     */
+    public int getNumColors() {
+        return epochColoring.getNumColors();
+    }
+}
@@ -0,0 +1,176 @@
+package com.b14.model.spreadengines;
+
+import com.b14.model.Adjacency;
+
+import java.util.Arrays;
+
+/**
+ * A proper coloring of the nodes of a graph: two nodes that are connected never have the same color.
+ * Nodes with the same color can therefore be updated at the same time without influencing each other.
+ * <p>
+ * The graph consists of the connections in an Adjacency, optionally extended with extra edges that are given in
+ * a compressed sparse row layout (such as the recommendations of the current epoch).
+ */
+
+public class GraphColoring {
+
+    private int[] color = new int[0];
+    private int numNodes = 0;
+    private int numColors = 0;
+
+    // Marks the colors used around the node that is being colored
+    private int[] colorMarks = new int[16];
+    private int mark = 0;
+
+    /**
+     * Colors all nodes greedily, in order of their id.
+     *
+     * @param network  the connections between the nodes
+     * @param numNodes the number of nodes
+     */
+    public void colorAll(Adjacency network, int numNodes) {
+        if (color.length < numNodes) {
+            color = new int[numNodes];
+        }
+
+        this.numNodes = numNodes;
+        numColors = 0;
+        Arrays.fill(color, 0, numNodes, -1);
+
+        for (int v = 0; v < numNodes; v++) {
+            recolor(v, network, null, null);
+        }
+    }
+
+    /**
+     * Makes this coloring a copy of another one
+     *
+     * @param other the coloring to copy
+     */
+    public void copyFrom(GraphColoring other) {
+        if (color.length < other.numNodes) {
+            color = new int[other.numNodes];
+        }
+
+        System.arraycopy(other.color, 0, color, 0, other.numNodes);
+        numNodes = other.numNodes;
+        numColors = other.numColors;
+    }
+
+    /**
+     * Restores the coloring after an edge has been added, by recoloring the endpoint with the highest id if both
+     * endpoints have the same color.
+     *
+     * @param network the connections between the nodes, including the new one
+     * @param u       one endpoint of the new edge
+     * @param v       the other endpoint of the new edge
+     */
+    public void repair(Adjacency network, int u, int v) {
+        if (color[u] == color[v]) {
+            recolor(Math.max(u, v), network, null, null);
+        }
+    }
+
+    /**
+     * Restores the coloring after extra edges have been added to the graph. Every node that has the same color as
+     * one of its neighbours is recolored, in order of id.
+     *
+     * @param network      the connections between the nodes
+     * @param extraOffsets for every node, the position of its first extra edge in extraTargets; has numNodes + 1
+     *                     entries
+     * @param extraTargets the other endpoints of the extra edges, which must be listed for both endpoints
+     */
+    public void repair(Adjacency network, int[] extraOffsets, int[] extraTargets) {
+        for (int v = 0; v < numNodes; v++) {
+            for (int i = extraOffsets[v]; i < extraOffsets[v + 1]; i++) {
+                if (color[extraTargets[i]] == color[v] && extraTargets[i] != v) {
+                    recolor(v, network, extraOffsets, extraTargets);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives a node the lowest color that none of its neighbours have.
+     */
+    private void recolor(int v, Adjacency network, int[] extraOffsets, int[] extraTargets) {
+        if (mark == Integer.MAX_VALUE) {
+            Arrays.fill(colorMarks, 0);
+            mark = 0;
+        }
+        ++mark;
+
+        int degree = network.getDegree(v);
+        for (int i = 0; i < degree; i++) {
+            markColor(color[network.get(v, i)]);
+        }
+
+        if (extraOffsets != null) {
+            for (int i = extraOffsets[v]; i < extraOffsets[v + 1]; i++) {
+                if (extraTargets[i] != v) {
+                    markColor(color[extraTargets[i]]);
+                }
+            }
+        }
+
+        int c = 0;
+        while (c < colorMarks.length && colorMarks[c] == mark) {
+            c++;
+        }
+
+        color[v] = c;
+        numColors = Math.max(numColors, c + 1);
+    }
+
+    private void markColor(int c) {
+        if (c < 0) {
+            return;
+        }
+
+        if (c >= colorMarks.length) {
+            colorMarks = Arrays.copyOf(colorMarks, Math.max(2 * colorMarks.length, c + 1));
+        }
+        colorMarks[c] = mark;
+    }
+
+    /**
+     * Lists the nodes grouped by color, in order of id within a color.
+     *
+     * @param order        receives the nodes, must have room for all nodes
+     * @param classOffsets receives the position in order of the first node of each color, must have room for
+     *                     the number of colors + 1 entries
+     */
+    public void getColorClasses(int[] order, int[] classOffsets) {
+        Arrays.fill(classOffsets, 0, numColors + 1, 0);
+
+        for (int v = 0; v < numNodes; v++) {
+            classOffsets[color[v] + 1]++;
+        }
+
+        for (int c = 0; c < numColors; c++) {
+            classOffsets[c + 1] += classOffsets[c];
+        }
+
+        int[] next = Arrays.copyOf(classOffsets, numColors);
+        for (int v = 0; v < numNodes; v++) {
+            order[next[color[v]]++] = v;
+        }
+    }
+
+    /*
+        Getters
+     */
+
+    public int getColor(int v) {
+        return color[v];
+    }
+
+    public int getNumColors() {
+        return numColors;
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+}
@@ -0,0 +1,101 @@
+package com.b14.model.spreadengines;
+
+import com.b14.model.AgentStore;
+import com.b14.model.GraphModel;
+import com.b14.model.Node;
+import com.b14.model.RandomStreams;
+import com.b14.model.SplitMixRandom;
+import com.b14.model.WorkerThreads;
+import com.b14.model.recommendationstrategies.RecommendationStrategy;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Updates the nodes on a fixed pool of worker threads.
+ * <p>
+ * Within a phase, all nodes read the beliefs and connections as they were at the start of that phase: updated
+ * beliefs are written to a separate array, and changes to the network are recorded in an EdgeJournal and committed
+ * in node order once all workers are done. Every node draws its random numbers from its own stream, keyed by the
+ * seed of the run, the epoch and the node id (see RandomStreams). Together this makes the outcome of a step depend
+ * only on the seed, and not on the number of threads or how the work was scheduled.
+ * <p>
+ * Note that this differs from the sequential engine, where a node sees the changes made by nodes that were updated
+ * before it in the same epoch.
+ */
+
+public class ParallelSpreadEngine extends PooledSpreadEngine {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private float[] nextBeliefs = new float[0];
+
+    /**
+     * Creates a parallel engine that runs its workers on the threads shared by all models
+     *
+     * @param threads the number of workers to use
+     */
+    public ParallelSpreadEngine(int threads) {
+        this(WorkerThreads.getShared(), threads);
+    }
+
+    /**
+     * Creates a parallel engine
+     *
+     * @param workers the executor to run the workers on, which is not shut down by the engine
+     * @param threads the number of workers to use
+     */
+    public ParallelSpreadEngine(ExecutorService workers, int threads) {
+        super(workers, threads, CHUNK_SIZE);
+    }
+
+    @Override
+    public void spreadStep(GraphModel model) {
+        ArrayList<Node> nodes = model.getNodes();
+        AgentStore store = model.getAgents();
+        RecommendationStrategy strategy = model.getRecommendationStrategy();
+        int recommendationSize = model.getRecommendationSize();
+        RandomStreams randomStreams = model.getRandomStreams();
+        int epoch = model.getEpoch();
+
+        if (nextBeliefs.length < nodes.size()) {
+            nextBeliefs = new float[nodes.size()];
+        }
+        setBeliefsOut(nextBeliefs);
+
+        // Message exchange, pruning and belief update
+        store.getNetwork().removeTombstones();
+        runChunks(nodes.size(), (context, from, to) -> {
+            SplitMixRandom random = (SplitMixRandom) context.getRandom();
+
+            for (int i = from; i < to; i++) {
+                Node n = nodes.get(i);
+                n.reset(); // clear confidence set
+                randomStreams.select(random, epoch, i, RandomStreams.RECOMMEND);
+                ArrayList<Node> recommended = context.getRecommendedBuffer();
+                strategy.recommend(n, recommendationSize, random, recommended);
+                randomStreams.select(random, epoch, i, RandomStreams.MESSAGES);
+                n.receiveMessages(recommended, context);
+            }
+        });
+        store.setBeliefs(nextBeliefs);
+        commitEdgeChanges(store, null);
+
+        // Fraternizing, on the network as it is after all messages have been exchanged
+        store.getNetwork().removeTombstones();
+        runChunks(nodes.size(), (context, from, to) -> {
+            for (int i = from; i < to; i++) {
+                Node n = nodes.get(i);
+                if (n.getCanConnect()) {
+                    n.fraternize(context);
+                }
+            }
+        });
+        commitEdgeChanges(store, null);
+    }
+
+    @Override
+    public Type getType() {
+        return Type.PARALLEL;
+    }
+}
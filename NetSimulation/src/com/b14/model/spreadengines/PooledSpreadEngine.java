@@ -0,0 +1,104 @@
+package com.b14.model.spreadengines;
+
+import com.b14.model.AgentStore;
+import com.b14.model.EdgeJournal;
+import com.b14.model.SplitMixRandom;
+import com.b14.model.SpreadContext;
+import com.b14.model.WorkerThreads;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Base for engines that spread their work over a number of workers, which run on an executor that may be shared
+ * with other models.
+ * <p>
+ * Work is split into chunks of a fixed size, independent of the number of threads. Workers take the next free chunk
+ * until none are left, so a worker always handles its items in increasing order. The calling thread works through
+ * the chunks as well, so the engine of a model that itself runs on the shared executor can not deadlock it (see
+ * WorkerThreads). Every worker has its own context and EdgeJournal, so network changes are recorded without
+ * locking, and committed in item order once all workers are done. Randomness comes from the per-node streams of the
+ * model, so that results do not depend on the scheduling.
+ */
+
+public abstract class PooledSpreadEngine implements SpreadEngine {
+
+    private final int threads;
+    private final ExecutorService workers;
+    private final ArrayList<SpreadContext> contexts = new ArrayList<>();
+    private final ArrayList<EdgeJournal> journals = new ArrayList<>();
+    private final int chunkSize;
+
+    /**
+     * Creates an engine that runs its workers on the given executor
+     *
+     * @param workers   the executor to run the workers on, which is not shut down by the engine
+     * @param threads   the number of workers to use
+     * @param chunkSize the number of items handed to a worker at once
+     */
+    protected PooledSpreadEngine(ExecutorService workers, int threads, int chunkSize) {
+        this.workers = workers;
+        this.threads = Math.max(1, threads);
+        this.chunkSize = chunkSize;
+
+        for (int i = 0; i < this.threads; i++) {
+            EdgeJournal journal = new EdgeJournal();
+            journals.add(journal);
+            contexts.add(new SpreadContext(new SplitMixRandom(0), journal));
+        }
+    }
+
+    /**
+     * Sets where the contexts of the workers write updated beliefs to.
+     *
+     * @param beliefsOut the array the contexts write updated beliefs to, null to update beliefs in place
+     */
+    protected void setBeliefsOut(float[] beliefsOut) {
+        for (SpreadContext context : contexts) {
+            context.setBeliefsOut(beliefsOut);
+        }
+    }
+
+    /**
+     * Commits the network changes recorded by all workers, in order of the agent that made them.
+     *
+     * @param store    the store the changes are applied to
+     * @param listener informed of every change that was made, may be null
+     * @return the number of recorded changes that were rejected
+     */
+    protected int commitEdgeChanges(AgentStore store, EdgeJournal.Listener listener) {
+        return EdgeJournal.commit(journals, store, listener);
+    }
+
+    /**
+     * Runs the task for every chunk of items on the workers, and waits until all of them are done.
+     *
+     * @param numItems the number of items to split into chunks
+     * @param task     the work to perform on a chunk
+     */
+    protected void runChunks(int numItems, ChunkTask task) {
+        WorkerThreads.runChunks(workers, threads, getNumChunks(numItems), (worker, chunk) -> {
+            int from = chunk * chunkSize;
+            task.run(contexts.get(worker), from, Math.min(numItems, from + chunkSize));
+        });
+    }
+
+    private int getNumChunks(int numItems) {
+        return (numItems + chunkSize - 1) / chunkSize;
+    }
+
+    /*
+        Getters, setters
+     */
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * A piece of work performed on the items within a single chunk
+     */
+    protected interface ChunkTask {
+        void run(SpreadContext context, int from, int to);
+    }
+}
@@ -0,0 +1,51 @@
+package com.b14.model.spreadengines;
+
+import com.b14.model.GraphModel;
+import com.b14.model.Node;
+import com.b14.model.RandomStreams;
+import com.b14.model.SplitMixRandom;
+import com.b14.model.SpreadContext;
+import com.b14.model.recommendationstrategies.RecommendationStrategy;
+
+import java.util.ArrayList;
+
+/**
+ * Updates all nodes one after another, in the order of the node list. Every node immediately sees the beliefs and
+ * connections that nodes earlier in the list have updated during the same epoch.
+ */
+
+public class SequentialSpreadEngine implements SpreadEngine {
+
+    private final SplitMixRandom random = new SplitMixRandom(0);
+    private final SpreadContext context = new SpreadContext(random);
+    private final ArrayList<Node> recommended = new ArrayList<>();
+
+    @Override
+    public void spreadStep(GraphModel model) {
+        ArrayList<Node> nodes = model.getNodes();
+        RecommendationStrategy strategy = model.getRecommendationStrategy();
+        RandomStreams randomStreams = model.getRandomStreams();
+        int epoch = model.getEpoch();
+
+        for (Node n : nodes) {
+            n.reset(); // clear confidence set
+            randomStreams.select(random, epoch, n.getId(), RandomStreams.RECOMMEND);
+            recommended.clear();
+            strategy.recommend(n, model.getRecommendationSize(), random, recommended);
+            randomStreams.select(random, epoch, n.getId(), RandomStreams.MESSAGES);
+            n.receiveMessages(recommended, context);
+        }
+
+        // perform fraternize on entire network AFTER all received message + dissonance update
+        for (Node n : nodes) {
+            if (n.getCanConnect()) {
+                n.fraternize(context);
+            }
+        }
+    }
+
+    @Override
+    public Type getType() {
+        return Type.SEQUENTIAL;
+    }
+}
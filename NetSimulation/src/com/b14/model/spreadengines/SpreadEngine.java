@@ -0,0 +1,58 @@
+package com.b14.model.spreadengines;
+
+import com.b14.model.GraphModel;
+import com.b14.model.WorkerThreads;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A spread engine performs the exchange of messages (including recommendations and pruning) and the fraternizing
+ * of all nodes for a single epoch.
+ */
+
+public interface SpreadEngine {
+
+    /**
+     * Creates an engine of the given type, whose workers run on the threads shared by all models
+     *
+     * @param type    the type of engine to create
+     * @param threads the number of workers, for engines that use them
+     * @return the new engine
+     */
+    static SpreadEngine create(Type type, int threads) {
+        return create(type, WorkerThreads.getShared(), threads);
+    }
+
+    /**
+     * Creates an engine of the given type
+     *
+     * @param type    the type of engine to create
+     * @param workers the executor to run the workers on, for engines that use them
+     * @param threads the number of workers, for engines that use them
+     * @return the new engine
+     */
+    static SpreadEngine create(Type type, ExecutorService workers, int threads) {
+        switch (type) {
+            case PARALLEL:
+                return new ParallelSpreadEngine(workers, threads);
+            case COLORED:
+                return new ColoredSpreadEngine(workers, threads);
+            case SEQUENTIAL:
+            default:
+                return new SequentialSpreadEngine();
+        }
+    }
+
+    /**
+     * Performs the message exchange and fraternizing for all nodes of the model
+     *
+     * @param model the model to perform the spread step on
+     */
+    void spreadStep(GraphModel model);
+
+    Type getType();
+
+    enum Type {
+        SEQUENTIAL, PARALLEL, COLORED
+    }
+}
@@ -129,6 +129,7 @@ public class GraphPanel extends JPanel implements PropertyChangeListener {
 
         g.drawString("Using recommendation strategy:   " + model.getRecommendationStrategy(), 60, 175);
         g.drawString("With recommendation set size:      " + model.getRecommendationSize(), 60, 200);
+        g.drawString("Using spread engine:                     " + model.getSpreadEngine().getType(), 60, 225);
 
     }
 
@@ -143,6 +144,10 @@ public class GraphPanel extends JPanel implements PropertyChangeListener {
 
         assert (controller != null) : "Panel tried to draw wihout an initialized controller reference";
 
+        // The nodes are laid out by the main loop, under the physics lock; until then there is nothing to draw
+        if (!model.isLaidOut()) {
+            return;
+        }
 
         ArrayList<Node> visible = new ArrayList<>();
 
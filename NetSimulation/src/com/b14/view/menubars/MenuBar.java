@@ -24,7 +24,7 @@ public class MenuBar extends JMenuBar {
     public MenuBar(ModelManager manager, GraphModel model, Camera camera, GraphPanel panel, GraphFrame frame, DataLogger dataLogger) {
         add(new MenuBarFile(manager, model, frame));
         add(new MenuBarControl(manager, model, frame));
-        add(new MenuBarPhysics(manager, model));
+        add(new MenuBarPhysics(manager, model, frame));
         add(new MenuBarView(model, camera, panel));
         add(new MenuBarLogging(dataLogger));
         add(new MenuBarHelp());
@@ -17,8 +17,10 @@ public class MenuBarControl extends JMenu {
         super("Sim Control");
 
         add(new JMenuItem(new ActionInitialize(manager, model)));
+        add(new JMenuItem(new ActionSetNetworkGenerator(manager, model, frame)));
         add(new JMenuItem(new ActionUpdateNetworkDissonance(model)));
         add(new JMenuItem(new ActionUpdateNetworkRecommendation(model, frame)));
+        add(new JMenuItem(new ActionSetSpreadEngine(manager, model, frame)));
         add(new JMenuItem(new ActionUpdateDissonanceWeight(model)));
         add(new JMenuItem(new ActionUpdateOpennessWeight(model)));
         add(new JMenuItem(new ActionUpdateNodeConnectionLimit(manager, model)));
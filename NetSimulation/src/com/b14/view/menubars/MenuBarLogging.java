@@ -14,17 +14,20 @@ public class MenuBarLogging extends JMenu {
         ActionDisableLogging adl = new ActionDisableLogging(dataLogger);
         ActionDisableImg adi = new ActionDisableImg(dataLogger);
         ActionSetAvgMaxMovement asamm = new ActionSetAvgMaxMovement(dataLogger);
+        ActionToggleMultilevelSettling atms = new ActionToggleMultilevelSettling(dataLogger);
 
         dataLogger.addPropertyChangeListener(ael);
         dataLogger.addPropertyChangeListener(adl);
         dataLogger.addPropertyChangeListener(adi);
         dataLogger.addPropertyChangeListener(asamm);
+        dataLogger.addPropertyChangeListener(atms);
 
         add(new JMenuItem(ael));
         add(new JMenuItem(adl));
         add(new JMenuItem(new ActionEnableImg(dataLogger)));
         add(new JMenuItem(adi));
         add(new JMenuItem(asamm));
+        add(new JMenuItem(atms));
 
     }
 }
\ No newline at end of file
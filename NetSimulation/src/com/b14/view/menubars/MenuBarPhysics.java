@@ -2,18 +2,25 @@ package com.b14.view.menubars;
 
 import com.b14.ModelManager;
 import com.b14.controller.actions.ActionSetGravity;
+import com.b14.controller.actions.ActionSetPhysicsThreads;
+import com.b14.controller.actions.ActionSetPushForceEngine;
 import com.b14.controller.actions.ActionTogglePhysics;
+import com.b14.controller.actions.ActionToggleSleeping;
 import com.b14.model.GraphModel;
+import com.b14.view.GraphFrame;
 
 import javax.swing.*;
 
 public class MenuBarPhysics extends JMenu {
 
-    public MenuBarPhysics(ModelManager manager, GraphModel model) {
+    public MenuBarPhysics(ModelManager manager, GraphModel model, GraphFrame frame) {
         super("Physics");
 
         add(new JMenuItem(new ActionTogglePhysics(manager)));
         add(new JMenuItem(new ActionSetGravity(manager, model)));
+        add(new JMenuItem(new ActionSetPushForceEngine(manager, model, frame)));
+        add(new JMenuItem(new ActionSetPhysicsThreads(manager, model)));
+        add(new JMenuItem(new ActionToggleSleeping(manager, model)));
 
     }
 }
\ No newline at end of file